@@ -0,0 +1,218 @@
+package Question5;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Append-only, memory-mapped write-ahead journal of booking outcomes.
+//
+// File layout: a 16-byte header (magic, format version) followed by binary records
+//   [int length][long timestamp][int seatNumber][byte outcome][short userLength][userId UTF-8]
+// where length counts the bytes after the length field.
+//
+// Writers reserve space with a compare-and-set on the write position, so appends from different
+// workers never block each other. A record's length is first written as a negative "reserved"
+// marker and only flipped to positive once the body is complete, so replay can skip a record
+// that a crash cut short. A negative length also marks padding: reserved space a batch did not
+// use, which replay steps over the same way.
+// Durability is per batch: a worker reserves room for every record its batch could produce
+// before booking anything (a full journal rejects the batch untouched), writes the records into
+// that region, then forces just the region once (group commit), instead of one fsync per booking.
+//
+// A snapshot file next to the journal stores the booked seats as a bitset. compact() writes a
+// new snapshot and empties the journal; it must only be called while no worker is appending
+// (at startup or shutdown). Replaying a booking twice is harmless, so a crash between writing
+// the snapshot and clearing the journal loses nothing.
+class BookingJournal implements AutoCloseable {
+    static final byte OUTCOME_BOOKED = 1;   // Seat was sold to the user
+    static final byte OUTCOME_REJECTED = 2; // Booking attempt failed
+
+    private static final int MAGIC = 0x424B4A31; // "BKJ1"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int FIXED_BODY_BYTES = 8 + 4 + 1 + 2; // timestamp, seat, outcome, userLength
+    private static final int MAX_USER_BYTES = Short.MAX_VALUE;
+
+    private final Path journalPath;
+    private final Path snapshotPath;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer; // Only absolute get/put are used, so it is shared safely
+    private final AtomicLong writePosition; // Next free byte in the journal
+
+    private BookingJournal(Path journalPath, FileChannel channel, MappedByteBuffer buffer, long writePosition) {
+        this.journalPath = journalPath;
+        this.snapshotPath = journalPath.resolveSibling(journalPath.getFileName() + ".snapshot");
+        this.channel = channel;
+        this.buffer = buffer;
+        this.writePosition = new AtomicLong(writePosition);
+    }
+
+    // Open (or create) a journal mapped with the given capacity in bytes.
+    // The file is sparse, so unused capacity does not take disk space.
+    static BookingJournal open(Path path, int capacityBytes) throws IOException {
+        if (capacityBytes <= HEADER_BYTES) {
+            throw new IllegalArgumentException("Journal capacity must exceed " + HEADER_BYTES + " bytes.");
+        }
+        FileChannel channel = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long existing = channel.size();
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+            Math.max(capacityBytes, existing));
+
+        if (existing == 0 || buffer.getInt(0) == 0) { // Fresh file
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, FORMAT_VERSION);
+            buffer.force(0, HEADER_BYTES);
+        } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            channel.close();
+            throw new IOException("Not a booking journal: " + path);
+        }
+        return new BookingJournal(path, channel, buffer, scanEnd(buffer));
+    }
+
+    // Append one record and return the offset just past it. The record is visible to replay
+    // after a clean shutdown, but only durable across power loss once force() covers it.
+    long append(String userId, int seatNumber, long timestamp, byte outcome) {
+        byte[] user = userId.getBytes(StandardCharsets.UTF_8);
+        int length = recordBytes(user);
+        long start = reserve(length);
+        if (start < 0) {
+            throw new IllegalStateException("Booking journal is full; compact it or raise its capacity.");
+        }
+        return write(start, start + length, user, seatNumber, timestamp, outcome);
+    }
+
+    // Bytes one record for the given UTF-8 user id takes in the journal
+    static int recordBytes(byte[] user) {
+        return 4 + FIXED_BODY_BYTES + Math.min(user.length, MAX_USER_BYTES);
+    }
+
+    // Claim bytes of journal space and return its start offset, or -1 (claiming nothing) if the
+    // journal cannot hold them. The region is marked as padding until records are written into it.
+    long reserve(long bytes) {
+        while (true) {
+            long start = writePosition.get();
+            if (bytes <= 0 || start + bytes > buffer.capacity()) return -1;
+            if (writePosition.compareAndSet(start, start + bytes)) {
+                pad(start, start + bytes);
+                return start;
+            }
+        }
+    }
+
+    // Write one record at offset at of a reserved region ending at limit, and return the offset
+    // just past it. The rest of the region is re-marked as padding first, so replay can always
+    // step over whatever this batch has not written yet.
+    long write(long at, long limit, byte[] user, int seatNumber, long timestamp, byte outcome) {
+        int userLength = Math.min(user.length, MAX_USER_BYTES);
+        int bodyLength = FIXED_BODY_BYTES + userLength;
+        long end = at + 4 + bodyLength;
+        if (end > limit) throw new IllegalArgumentException("Record does not fit in the reserved region.");
+        pad(end, limit);
+        int start = (int) at;
+        buffer.putInt(start, -bodyLength); // Reserved, not yet complete
+        buffer.putLong(start + 4, timestamp);
+        buffer.putInt(start + 12, seatNumber);
+        buffer.put(start + 16, outcome);
+        buffer.putShort(start + 17, (short) userLength);
+        buffer.put(start + 19, user, 0, userLength);
+        buffer.putInt(start, bodyLength);  // Publish
+        return end;
+    }
+
+    // Mark [from, to) as padding. Every gap is a whole number of records, so it is never
+    // shorter than a length field plus an empty-user record.
+    private void pad(long from, long to) {
+        if (to > from) buffer.putInt((int) from, -(int) (to - from - 4));
+    }
+
+    // Flush [from, to) to disk: one fsync for a whole batch of appends
+    void force(long from, long to) {
+        if (to > from) buffer.force((int) from, (int) (to - from));
+    }
+
+    // Visit every complete journal record in order. Apply readSnapshot() first.
+    // Records are decoded straight from the mapping without materializing user ids.
+    void replay(ReplayVisitor visitor) {
+        int at = HEADER_BYTES;
+        int end = (int) writePosition.get();
+        while (at < end) {
+            int length = buffer.getInt(at);
+            if (length == 0) break;        // Never written
+            if (length > 0) {
+                visitor.onRecord(buffer.getInt(at + 12), buffer.getLong(at + 4), buffer.get(at + 16));
+            }
+            at += 4 + Math.abs(length);    // Negative = torn record or padding, skip it
+        }
+    }
+
+    // Write a snapshot of the booked-seat bitset, then clear the journal.
+    // Only call while no thread is appending.
+    void compact(long[] bookedBits) throws IOException {
+        Path temp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        ByteBuffer out = ByteBuffer.allocate(4 + bookedBits.length * 8);
+        out.putInt(bookedBits.length);
+        for (long word : bookedBits) out.putLong(word);
+        out.flip();
+        try (FileChannel snapshot = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) snapshot.write(out);
+            snapshot.force(true);
+        }
+        Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        int used = (int) writePosition.get();
+        int at = HEADER_BYTES;
+        for (; at + 8 <= used; at += 8) buffer.putLong(at, 0L); // Zero the old records
+        for (; at < used; at++) buffer.put(at, (byte) 0);
+        buffer.force(0, used);
+        writePosition.set(HEADER_BYTES);
+    }
+
+    // Booked-seat bitset from the last compaction, or null if there is none
+    long[] readSnapshot() throws IOException {
+        if (!Files.exists(snapshotPath)) return null;
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(snapshotPath));
+        long[] bits = new long[in.getInt()];
+        for (int i = 0; i < bits.length; i++) bits[i] = in.getLong();
+        return bits;
+    }
+
+    // Offset just past the last record (complete or torn) in an existing journal
+    private static long scanEnd(MappedByteBuffer buffer) {
+        int at = HEADER_BYTES;
+        while (at + 4 <= buffer.capacity()) {
+            int length = buffer.getInt(at);
+            if (length == 0) break;
+            at += 4 + Math.abs(length);
+        }
+        return at;
+    }
+
+    Path getPath() {
+        return journalPath;
+    }
+
+    @Override
+    public void close() {
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Receives each complete record during replay
+    interface ReplayVisitor {
+        void onRecord(int seatNumber, long timestamp, byte outcome);
+    }
+}
@@ -0,0 +1,181 @@
+package Question5;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Maze generators for MazeGrid, all driven by a seeded SplittableRandom so a seed always gives
+// the same maze.
+//
+// Rooms sit on even (row, col) coordinates and the cells between two rooms are the walls that
+// get knocked through, as in the original recursive carver. Odd sizes give a closed border;
+// with an even size the last row or column stays solid wall.
+// - backtracker: randomized depth-first carving (long, winding corridors) with an explicit int
+//   stack instead of recursion, so it cannot overflow the call stack on any size.
+// - eller: Eller's algorithm, one row of rooms at a time. Only the current row's set labels are
+//   kept, so it needs O(cols) memory and can stream mazes of any height to a RowSink.
+//
+// Stream a maze as text: java Question5.MazeGenerator rows=<n> cols=<n> [seed=1]
+final class MazeGenerator {
+    // Receives each finished grid row; bit c of walls (c >>> 6, c & 63) set = wall. The array is reused.
+    interface RowSink {
+        void row(int row, long[] walls) throws IOException;
+    }
+
+    private MazeGenerator() {
+    }
+
+    // Carve the grid by randomized depth-first search from the top-left room
+    static void backtracker(MazeGrid grid, SplittableRandom random) {
+        grid.fillWalls();
+        int roomRows = (grid.rows + 1) / 2, roomCols = (grid.cols + 1) / 2;
+        int[] stack = new int[roomRows * roomCols]; // Rooms on the current path, as grid indices
+        int[] options = new int[4];                  // Directions to unvisited rooms, reused
+        int top = 0;
+        grid.setWall(0, false);
+        stack[top++] = 0;
+        while (top > 0) {
+            int cell = stack[top - 1];
+            int count = 0;
+            for (int dir = 0; dir < 4; dir++) {
+                int wall = grid.neighbour(cell, dir);
+                int room = wall < 0 ? -1 : grid.neighbour(wall, dir);
+                if (room >= 0 && grid.isWall(room)) options[count++] = dir; // Not carved yet
+            }
+            if (count == 0) {
+                top--;                                // Every neighbour carved: backtrack
+                continue;
+            }
+            int dir = options[random.nextInt(count)];
+            int wall = grid.neighbour(cell, dir);
+            int room = grid.neighbour(wall, dir);
+            grid.setWall(wall, false);                // Knock through to the new room
+            grid.setWall(room, false);
+            stack[top++] = room;
+        }
+    }
+
+    // Fill the grid with a maze from Eller's algorithm
+    static void eller(MazeGrid grid, SplittableRandom random) {
+        try {
+            eller(grid.rows, grid.cols, random, (row, walls) -> {
+                for (int col = 0; col < grid.cols; col++) {
+                    grid.setWall(grid.index(row, col), (walls[col >>> 6] & (1L << col)) != 0);
+                }
+            });
+        } catch (IOException e) {
+            throw new AssertionError(e); // The grid sink does no I/O
+        }
+    }
+
+    // Eller's algorithm, emitting grid rows top to bottom. Every room belongs to a set of rooms
+    // already connected to each other. Along a row, neighbours in different sets are joined at
+    // random; then every set gets at least one opening down, and rooms below an opening keep
+    // their set while the rest start new ones. The last row joins everything left, so the maze
+    // is a spanning tree. Set labels are recycled, so they stay below roomCols however tall the
+    // maze grows; joins within a row go through a small union-find.
+    static void eller(int rows, int cols, SplittableRandom random, RowSink sink) throws IOException {
+        if (rows < 1 || cols < 1) throw new IllegalArgumentException("Maze size must be positive.");
+        int roomRows = (rows + 1) / 2, roomCols = (cols + 1) / 2;
+        int[] set = new int[roomCols];       // Set label of each room in the current row
+        int[] union = new int[roomCols];     // Union-find parent per label, for this row
+        int[] remaining = new int[roomCols]; // Rooms of each label not yet given a chance to go down
+        boolean[] hasDown = new boolean[roomCols];
+        boolean[] down = new boolean[roomCols];
+        boolean[] used = new boolean[roomCols];
+        long[] roomLine = new long[(cols + 63) >>> 6];
+        long[] wallLine = new long[(cols + 63) >>> 6];
+        for (int c = 0; c < roomCols; c++) set[c] = c;
+
+        for (int r = 0; r < roomRows; r++) {
+            boolean last = r == roomRows - 1;
+            Arrays.fill(roomLine, -1L);
+            Arrays.fill(wallLine, -1L);
+            for (int id = 0; id < roomCols; id++) union[id] = id;
+
+            // Join neighbouring rooms of different sets; the last row joins all of them
+            for (int c = 0; c < roomCols; c++) {
+                clear(roomLine, 2 * c);
+                if (c == roomCols - 1) break;
+                int a = find(union, set[c]), b = find(union, set[c + 1]);
+                if (a != b && (last || random.nextBoolean())) {
+                    union[b] = a;
+                    clear(roomLine, 2 * c + 1);
+                }
+            }
+            sink.row(2 * r, roomLine);
+            if (last) break;
+
+            // Openings down: each room at random, but the last room of a set without one must
+            Arrays.fill(remaining, 0);
+            Arrays.fill(hasDown, false);
+            for (int c = 0; c < roomCols; c++) {
+                set[c] = find(union, set[c]);
+                remaining[set[c]]++;
+            }
+            for (int c = 0; c < roomCols; c++) {
+                int id = set[c];
+                remaining[id]--;
+                down[c] = random.nextBoolean() || (remaining[id] == 0 && !hasDown[id]);
+                if (down[c]) {
+                    hasDown[id] = true;
+                    clear(wallLine, 2 * c);
+                }
+            }
+            if (2 * r + 1 < rows) sink.row(2 * r + 1, wallLine);
+
+            // Rooms below an opening keep their set; the others get labels no longer in use
+            Arrays.fill(used, false);
+            for (int c = 0; c < roomCols; c++) {
+                if (down[c]) used[set[c]] = true;
+            }
+            int free = 0;
+            for (int c = 0; c < roomCols; c++) {
+                if (down[c]) continue;
+                while (used[free]) free++;
+                set[c] = free;
+                used[free] = true;
+            }
+        }
+        if ((rows & 1) == 0) {                         // Even height: solid bottom row
+            Arrays.fill(wallLine, -1L);
+            sink.row(rows - 1, wallLine);
+        }
+    }
+
+    private static int find(int[] union, int id) {
+        while (union[id] != id) {
+            union[id] = union[union[id]];              // Path halving
+            id = union[id];
+        }
+        return id;
+    }
+
+    private static void clear(long[] line, int col) {
+        line[col >>> 6] &= ~(1L << col);
+    }
+
+    // Stream an Eller maze to stdout, '#' for walls
+    public static void main(String[] args) throws IOException {
+        java.util.Map<String, String> options = new java.util.TreeMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        int rows = Integer.parseInt(options.getOrDefault("rows", "21"));
+        int cols = Integer.parseInt(options.getOrDefault("cols", "21"));
+        SplittableRandom random = new SplittableRandom(Long.parseLong(options.getOrDefault("seed", "1")));
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        char[] line = new char[cols + 1];
+        line[cols] = '\n';
+        eller(rows, cols, random, (row, walls) -> {
+            for (int col = 0; col < cols; col++) line[col] = (walls[col >>> 6] & (1L << col)) != 0 ? '#' : ' ';
+            out.write(line);
+        });
+        out.flush();
+    }
+}
@@ -0,0 +1,411 @@
+package Question5;
+
+import java.util.Arrays;
+
+// Flat, array-backed maze grid for the maze solver.
+//
+// Cell (r, c) is the int index r * cols + c and walls are one bit per cell in a long[] bitset,
+// so a 10,000 x 10,000 maze (100M cells) is 12.5MB of walls and no objects per cell. Searches
+// (DFS, BFS, A* and bidirectional BFS) run on a separate Search workspace (parent indices, visit
+// marks, frontier) that is allocated once and reused, so a solve allocates nothing per step.
+// Several workspaces can search the same grid at once, as long as nobody changes the walls.
+final class MazeGrid {
+    static final int UP = 0, DOWN = 1, LEFT = 2, RIGHT = 3; // Neighbour directions, in search order
+
+    final int rows, cols;
+    private final long[] walls; // Bit set = wall
+
+    // New grid with every cell a wall
+    MazeGrid(int rows, int cols) {
+        if (rows < 1 || cols < 1 || (long) rows * cols > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Maze size must be positive and below 2^31 cells.");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.walls = new long[(int) (((long) rows * cols + 63) >>> 6)];
+        fillWalls();
+    }
+
+    int size() {
+        return rows * cols;
+    }
+
+    int index(int row, int col) {
+        return row * cols + col;
+    }
+
+    int row(int cell) {
+        return cell / cols;
+    }
+
+    int col(int cell) {
+        return cell % cols;
+    }
+
+    boolean isWall(int cell) {
+        return (walls[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    void setWall(int cell, boolean wall) {
+        if (wall) {
+            walls[cell >>> 6] |= 1L << cell;
+        } else {
+            walls[cell >>> 6] &= ~(1L << cell);
+        }
+    }
+
+    // Turn every cell back into a wall
+    void fillWalls() {
+        Arrays.fill(walls, -1L);
+    }
+
+    // Cell next to cell in direction dir, or -1 past the edge of the grid
+    int neighbour(int cell, int dir) {
+        switch (dir) {
+            case UP:    return cell >= cols ? cell - cols : -1;
+            case DOWN:  return cell < size() - cols ? cell + cols : -1;
+            case LEFT:  return cell % cols != 0 ? cell - 1 : -1;
+            default:    return cell % cols != cols - 1 ? cell + 1 : -1;
+        }
+    }
+
+    // Search algorithms offered by Search.solve
+    enum Algorithm {
+        DFS("DFS"),
+        BFS("BFS"),
+        A_STAR("A*"),
+        BIDIRECTIONAL_BFS("Bidirectional BFS");
+
+        final String label;
+
+        Algorithm(String label) {
+            this.label = label;
+        }
+    }
+
+    // Outcome of one solve: the path (empty if none), how many cells were expanded and how long it took
+    static final class SolveResult {
+        final Algorithm algorithm;
+        final int[] path;
+        final int expanded;
+        final long nanos;
+
+        SolveResult(Algorithm algorithm, int[] path, int expanded, long nanos) {
+            this.algorithm = algorithm;
+            this.path = path;
+            this.expanded = expanded;
+            this.nanos = nanos;
+        }
+
+        boolean found() {
+            return path.length > 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %s, expanded %d cells in %.2fms", algorithm.label,
+                found() ? "path of " + path.length + " cells" : "no path", expanded, nanos / 1e6);
+        }
+    }
+
+    // Reusable search state over one grid. Marks are stamped with the search's epoch, so starting
+    // a new search is O(1) instead of clearing every cell: mark == epoch means reached (or reached
+    // from the start side), mark == epoch + 1 means closed (A*) or reached from the end side
+    // (bidirectional BFS), anything smaller is left over from an earlier search.
+    static final class Search {
+        final MazeGrid grid;
+        private final int[] parent;   // Cell we reached each cell from; valid only if reached
+        private final int[] mark;     // Epoch stamps, see above
+        private final int[] frontier; // BFS queue or DFS stack; each cell enters at most once
+        private int[] dist;           // A* cost so far / bidirectional depth, allocated on first use
+        private long[] heap = new long[64]; // A* open set: (f << 32) | cell, grown as needed
+        private int[] order;          // Expansion order, kept only when recordOrder is set
+        private int epoch = 0;
+        private int expanded = 0;
+        private int meetFrom = -1, meetTo = -1; // Bidirectional: adjacent cells joining the two trees
+        boolean recordOrder = false;
+
+        Search(MazeGrid grid) {
+            this.grid = grid;
+            this.parent = new int[grid.size()];
+            this.mark = new int[grid.size()];
+            this.frontier = new int[grid.size()];
+        }
+
+        // Forget the previous search
+        void reset() {
+            epoch += 2;
+            if (epoch >= Integer.MAX_VALUE - 2) { // Stamps wrapped; clear once every 2^30 searches
+                Arrays.fill(mark, 0);
+                epoch = 2;
+            }
+            expanded = 0;
+            meetFrom = meetTo = -1;
+            if (recordOrder && order == null) order = new int[grid.size()];
+        }
+
+        // Reached by the last search (from either side)
+        boolean isVisited(int cell) {
+            return mark[cell] >= epoch;
+        }
+
+        // Mark cell reached from 'from' (-1 for a start), stamped with the given epoch
+        private void visit(int cell, int from, int stamp) {
+            mark[cell] = stamp;
+            parent[cell] = from;
+        }
+
+        // Count cell as expanded (its neighbours are being examined)
+        private void expand(int cell) {
+            if (recordOrder) order[expanded] = cell;
+            expanded++;
+        }
+
+        // Open and not yet reached in this search
+        private boolean canEnter(int cell) {
+            return cell >= 0 && mark[cell] < epoch && !grid.isWall(cell);
+        }
+
+        // Run one algorithm from start to end and time it
+        SolveResult solve(Algorithm algorithm, int start, int end) {
+            long begin = System.nanoTime();
+            boolean found;
+            switch (algorithm) {
+                case DFS:    found = dfs(start, end); break;
+                case BFS:    found = bfs(start, end); break;
+                case A_STAR: found = aStar(start, end); break;
+                default:     found = bidirectionalBfs(start, end); break;
+            }
+            int[] path = found ? pathTo(end) : new int[0];
+            return new SolveResult(algorithm, path, expanded, System.nanoTime() - begin);
+        }
+
+        // Breadth-first search from start; stops when end is expanded. Returns true if it was.
+        boolean bfs(int start, int end) {
+            reset();
+            if (grid.isWall(start)) return false;
+            int head = 0, tail = 0;
+            visit(start, -1, epoch);
+            frontier[tail++] = start;
+            while (head < tail) {
+                int cell = frontier[head++];
+                expand(cell);
+                if (cell == end) return true;
+                for (int dir = 0; dir < 4; dir++) {
+                    int next = grid.neighbour(cell, dir);
+                    if (canEnter(next)) {
+                        visit(next, cell, epoch); // Mark on enqueue, so every cell is queued once
+                        frontier[tail++] = next;
+                    }
+                }
+            }
+            return false;
+        }
+
+        // Full breadth-first search from source: dist[cell] = steps from source, or -1 where
+        // unreachable. dist doubles as the visited mark, so the result can be kept as a BFS tree.
+        void bfsDistances(int source, int[] dist) {
+            reset();
+            Arrays.fill(dist, -1);
+            if (grid.isWall(source)) return;
+            int head = 0, tail = 0;
+            dist[source] = 0;
+            frontier[tail++] = source;
+            while (head < tail) {
+                int cell = frontier[head++];
+                expand(cell);
+                for (int dir = 0; dir < 4; dir++) {
+                    int next = grid.neighbour(cell, dir);
+                    if (next >= 0 && dist[next] < 0 && !grid.isWall(next)) {
+                        dist[next] = dist[cell] + 1;
+                        frontier[tail++] = next;
+                    }
+                }
+            }
+        }
+
+        // Depth-first search from start; stops when end is reached. Returns true if it was.
+        // Iterative with an explicit stack: the top of the stack is always the current path, and
+        // each cell's parent is the cell it was actually entered from.
+        boolean dfs(int start, int end) {
+            reset();
+            if (grid.isWall(start)) return false;
+            int top = 0;
+            visit(start, -1, epoch);
+            expand(start);
+            frontier[top++] = start;
+            while (top > 0) {
+                int cell = frontier[top - 1];
+                if (cell == end) return true;
+                int next = -1;
+                for (int dir = 0; dir < 4 && next < 0; dir++) {
+                    int candidate = grid.neighbour(cell, dir);
+                    if (canEnter(candidate)) next = candidate;
+                }
+                if (next < 0) {
+                    top--;                        // Dead end: backtrack
+                } else {
+                    visit(next, cell, epoch);
+                    expand(next);
+                    frontier[top++] = next;
+                }
+            }
+            return false;
+        }
+
+        // A* from start to end with the Manhattan distance as heuristic, which never overestimates
+        // on a 4-connected grid, so the path is a shortest one. The open set is a binary heap of
+        // packed longs with lazy deletion: a cell re-pushed with a lower cost leaves a stale
+        // entry that is skipped when popped.
+        boolean aStar(int start, int end) {
+            reset();
+            if (grid.isWall(start)) return false;
+            if (dist == null) dist = new int[grid.size()];
+            int endRow = grid.row(end), endCol = grid.col(end);
+            int size = 0;
+            visit(start, -1, epoch);
+            dist[start] = 0;
+            size = heapPush(size, heuristic(start, endRow, endCol), start);
+            while (size > 0) {
+                long top = heap[0];
+                size = heapPop(size);
+                int cell = (int) top;
+                if (mark[cell] == epoch + 1) continue;  // Stale entry, already closed
+                mark[cell] = epoch + 1;
+                expand(cell);
+                if (cell == end) return true;
+                int cost = dist[cell] + 1;
+                for (int dir = 0; dir < 4; dir++) {
+                    int next = grid.neighbour(cell, dir);
+                    if (next < 0 || grid.isWall(next) || mark[next] == epoch + 1) continue;
+                    if (mark[next] == epoch && dist[next] <= cost) continue; // No improvement
+                    visit(next, cell, epoch);
+                    dist[next] = cost;
+                    size = heapPush(size, cost + heuristic(next, endRow, endCol), next);
+                }
+            }
+            return false;
+        }
+
+        private int heuristic(int cell, int endRow, int endCol) {
+            return Math.abs(grid.row(cell) - endRow) + Math.abs(grid.col(cell) - endCol);
+        }
+
+        private int heapPush(int size, int priority, int cell) {
+            if (size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+            long entry = ((long) priority << 32) | cell;
+            int i = size;
+            while (i > 0) {                      // Sift up
+                int up = (i - 1) >>> 1;
+                if (heap[up] <= entry) break;
+                heap[i] = heap[up];
+                i = up;
+            }
+            heap[i] = entry;
+            return size + 1;
+        }
+
+        private int heapPop(int size) {
+            long last = heap[--size];
+            int i = 0;
+            while (true) {                       // Sift the last entry down from the root
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+                if (heap[child] >= last) break;
+                heap[i] = heap[child];
+                i = child;
+            }
+            if (size > 0) heap[i] = last;
+            return size;
+        }
+
+        // Breadth-first search from both ends at once, one whole layer at a time from whichever
+        // side has the smaller frontier. When the two sides touch, the rest of that layer is
+        // still checked, so the shortest of the joining paths is kept. Cells reached from the
+        // start are stamped epoch, cells reached from the end epoch + 1; parent points towards
+        // the side's own root in both cases.
+        boolean bidirectionalBfs(int start, int end) {
+            reset();
+            if (grid.isWall(start) || grid.isWall(end)) return false;
+            if (dist == null) dist = new int[grid.size()];
+            visit(start, -1, epoch);
+            dist[start] = 0;
+            if (start == end) {
+                expand(start);
+                return true;
+            }
+            visit(end, -1, epoch + 1);
+            dist[end] = 0;
+            // frontier holds both queues: start side grows up from 0, end side down from the top
+            int forwardHead = 0, forwardTail = 0, backwardHead = frontier.length, backwardTail = frontier.length;
+            frontier[forwardTail++] = start;
+            frontier[--backwardTail] = end;
+            int best = Integer.MAX_VALUE;
+            while (forwardHead < forwardTail && backwardTail < backwardHead) {
+                boolean forward = forwardTail - forwardHead <= backwardHead - backwardTail;
+                int own = forward ? epoch : epoch + 1, other = forward ? epoch + 1 : epoch;
+                int layerEnd = forward ? forwardTail : backwardTail;
+                while (forward ? forwardHead < layerEnd : backwardHead > layerEnd) {
+                    int cell = forward ? frontier[forwardHead++] : frontier[--backwardHead];
+                    expand(cell);
+                    for (int dir = 0; dir < 4; dir++) {
+                        int next = grid.neighbour(cell, dir);
+                        if (next < 0 || grid.isWall(next)) continue;
+                        if (mark[next] == other) {       // The two trees touch
+                            int length = dist[cell] + 1 + dist[next];
+                            if (length < best) {
+                                best = length;
+                                meetFrom = forward ? cell : next;
+                                meetTo = forward ? next : cell;
+                            }
+                        } else if (mark[next] < epoch) {
+                            visit(next, cell, own);
+                            dist[next] = dist[cell] + 1;
+                            if (forward) {
+                                frontier[forwardTail++] = next;
+                            } else {
+                                frontier[--backwardTail] = next;
+                            }
+                        }
+                    }
+                }
+                if (best != Integer.MAX_VALUE) return true;
+            }
+            return false;
+        }
+
+        // Cells expanded by the last search
+        int expandedCount() {
+            return expanded;
+        }
+
+        // i-th cell expanded by the last search (needs recordOrder)
+        int expandedAt(int i) {
+            return order[i];
+        }
+
+        // Path from the last search's start to end, or an empty array if end was not reached.
+        // After a bidirectional search, end must be the end it was run with.
+        int[] pathTo(int end) {
+            if (meetFrom >= 0) return joinedPath();
+            if (!isVisited(end)) return new int[0];
+            int length = 0;
+            for (int cell = end; cell >= 0; cell = parent[cell]) length++;
+            int[] path = new int[length];
+            for (int cell = end; cell >= 0; cell = parent[cell]) path[--length] = cell;
+            return path;
+        }
+
+        // Start-side chain up to meetFrom, then end-side chain from meetTo
+        private int[] joinedPath() {
+            int length = dist[meetFrom] + 1 + dist[meetTo] + 1;
+            int[] path = new int[length];
+            int i = dist[meetFrom];
+            for (int cell = meetFrom; cell >= 0; cell = parent[cell]) path[i--] = cell;
+            i = dist[meetFrom] + 1;
+            for (int cell = meetTo; cell >= 0; cell = parent[cell]) path[i++] = cell;
+            return path;
+        }
+    }
+}
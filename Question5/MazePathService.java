@@ -0,0 +1,749 @@
+package Question5;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.LongAdder;
+
+// Answers many shortest-path queries on one fixed maze, from any number of threads at once.
+//
+// Two strategies, both returning shortest paths:
+// - BFS trees: the first query from a source runs one full BFS and keeps its distance array in a
+//   bounded cache. Every later query from that source, or to it, walks down the distances from
+//   the other end in O(path length) with no search at all. Concurrent queries for the same
+//   uncached source wait for a single computation instead of each running their own.
+// - Corridor contraction: open cells with exactly two open neighbours are corridor cells and
+//   every other open cell (dead end, junction) is a node; each corridor between two nodes is one
+//   weighted edge, so mazes collapse to a fraction of their cells. A perfect maze (every maze
+//   MazeGenerator makes) contracts to a tree: queries then take the distance through the lowest
+//   common ancestor, found with binary-lifting tables in O(log nodes), microseconds on any size.
+//   Mazes with loops run A* on the graph from the corridor ends around start, stopping as soon
+//   as end's corridor is settled. Its bound is ALT: with the distances from a few landmark nodes
+//   precomputed, |d(L, end) - d(L, node)| never overestimates, and far corner landmarks make it
+//   much tighter than the Manhattan distance (still used where it is larger). A query still
+//   searches, so loop mazes cost far more than tree mazes: milliseconds on a 2001x2001 maze.
+//   The graph and landmark tables are built once, on first use.
+// Per-thread workspaces keep both query paths free of allocation apart from the returned path.
+// The maze must not change while the service is in use; make a new one after regenerating.
+//
+// Benchmark: java Question5.MazePathService [rows=2001] [cols=2001] [queries=100000] [sources=16]
+//            [trees=16] [threads=<cores>] [generator=backtracker|eller] [loops=0] [seed=1]
+//            loops = share of the remaining walls between rooms to knock out, which adds cycles
+final class MazePathService {
+    private final MazeGrid maze;
+    private final int maxTrees; // BFS trees kept; each is one int per cell
+    private final ConcurrentHashMap<Integer, FutureTask<int[]>> trees = new ConcurrentHashMap<>();
+    // Oldest first, for eviction
+    private final ConcurrentLinkedQueue<Integer> treeOrder = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<MazeGrid.Search> searches;
+    private final ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(Workspace::new);
+    private final LongAdder treeHits = new LongAdder(), treeMisses = new LongAdder();
+    private volatile Contraction contraction;
+
+    MazePathService(MazeGrid maze, int maxTrees) {
+        if (maxTrees < 1) throw new IllegalArgumentException("maxTrees must be positive.");
+        this.maze = maze;
+        this.maxTrees = maxTrees;
+        this.searches = ThreadLocal.withInitial(() -> new MazeGrid.Search(maze));
+    }
+
+    // Shortest path from start to end using a cached BFS tree, or an empty array if there is none
+    int[] shortestPath(int start, int end) {
+        if (maze.isWall(start) || maze.isWall(end)) return new int[0];
+        if (!trees.containsKey(start) && trees.containsKey(end)) {
+            return descend(tree(end), start);            // Already oriented start -> end
+        }
+        int[] path = descend(tree(start), end);
+        for (int i = 0, j = path.length - 1; i < j; i++, j--) { // end -> start, so reverse
+            int cell = path[i];
+            path[i] = path[j];
+            path[j] = cell;
+        }
+        return path;
+    }
+
+    // Steps from start to end using a cached BFS tree, or -1 if end cannot be reached
+    int distance(int start, int end) {
+        if (maze.isWall(start) || maze.isWall(end)) return -1;
+        if (!trees.containsKey(start) && trees.containsKey(end)) return tree(end)[start];
+        return tree(start)[end];
+    }
+
+    // True if a query from or to source would not need a new BFS
+    boolean isCached(int source) {
+        return trees.containsKey(source);
+    }
+
+    // Walk from 'from' down to the tree's root, one step closer each time
+    private int[] descend(int[] dist, int from) {
+        if (dist[from] < 0) return new int[0];
+        int[] path = new int[dist[from] + 1];
+        int cell = from;
+        for (int i = 0; i < path.length; i++) {
+            path[i] = cell;
+            for (int dir = 0; dir < 4 && i + 1 < path.length; dir++) {
+                int next = maze.neighbour(cell, dir);
+                if (next >= 0 && dist[next] == dist[cell] - 1) {
+                    cell = next;
+                    break;
+                }
+            }
+        }
+        return path;
+    }
+
+    // BFS distances from source, computed at most once while cached
+    private int[] tree(int source) {
+        FutureTask<int[]> task = trees.get(source);
+        if (task == null) {
+            FutureTask<int[]> created = new FutureTask<>(() -> {
+                int[] dist = new int[maze.size()];
+                searches.get().bfsDistances(source, dist);
+                return dist;
+            });
+            task = trees.putIfAbsent(source, created);
+            if (task == null) {                          // We won the race: compute on this thread
+                task = created;
+                treeMisses.increment();
+                treeOrder.add(source);
+                created.run();
+                while (trees.size() > maxTrees) {        // Evict oldest first
+                    Integer oldest = treeOrder.poll();
+                    if (oldest == null) break;
+                    trees.remove(oldest);
+                }
+            } else {
+                treeHits.increment();
+            }
+        } else {
+            treeHits.increment();
+        }
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for BFS tree", e);
+        } catch (ExecutionException e) {
+            trees.remove(source, task);
+            throw new IllegalStateException("BFS tree computation failed", e.getCause());
+        }
+    }
+
+    // Shortest path through the corridor-contracted graph, or an empty array if there is none
+    int[] contractedPath(int start, int end) {
+        Workspace w = workspaces.get();
+        if (contractedSearch(w, start, end) < 0) return new int[0];
+        return reconstruct(w, start, end);
+    }
+
+    // Steps from start to end through the contracted graph, or -1 if end cannot be reached
+    int contractedDistance(int start, int end) {
+        return contractedSearch(workspaces.get(), start, end);
+    }
+
+    // LCA lookup or A* over the contracted graph; leaves what reconstruct needs in w
+    private int contractedSearch(Workspace w, int start, int end) {
+        if (maze.isWall(start) || maze.isWall(end)) return -1;
+        if (start == end) {
+            w.bestEnd = -1;
+            w.directFirst = -1;
+            return 0;
+        }
+        Contraction graph = contraction();
+
+        // Corridor ends around start (or start itself); a corridor may also lead straight to end
+        w.best = Integer.MAX_VALUE;
+        w.bestEnd = -1;
+        w.directFirst = -1;
+        int startCount = attach(graph, w, start, end, w.startNode, w.startLength, w.startFirst);
+        int endCount = attach(graph, w, end, -1, w.endNode, w.endLength, w.endFirst);
+
+        if (graph.forest) {                              // Unique route: through the common ancestor
+            for (int a = 0; a < startCount; a++) {
+                for (int b = 0; b < endCount; b++) {
+                    int u = w.startNode[a], v = w.endNode[b];
+                    if (graph.component[u] != graph.component[v]) continue;
+                    int lca = graph.lca(u, v);
+                    int d = w.startLength[a] + graph.depth[u] + graph.depth[v] - 2 * graph.depth[lca] + w.endLength[b];
+                    if (d < w.best) {
+                        w.best = d;
+                        w.bestStart = a;
+                        w.bestEnd = b;
+                        w.lca = lca;
+                    }
+                }
+            }
+            return w.best == Integer.MAX_VALUE ? -1 : w.best;
+        }
+
+        w.begin(graph.nodeCell.length);
+        int endRow = maze.row(end), endCol = maze.col(end);
+        for (int l = 0; l < Contraction.LANDMARKS; l++) { // Landmark distances to end itself
+            int to = Contraction.UNREACHED;
+            for (int b = 0; b < endCount; b++) {
+                int d = graph.landmarkDist[w.endNode[b] * Contraction.LANDMARKS + l];
+                if (d != Contraction.UNREACHED) to = Math.min(to, d + w.endLength[b]);
+            }
+            w.landmarkEnd[l] = to;
+        }
+        for (int k = 0; k < startCount; k++) {
+            int node = w.startNode[k], length = w.startLength[k];
+            int bound = heuristic(graph, w, node, endRow, endCol);
+            w.relax(node, length, length + bound, -1, -1, w.startFirst[k]);
+        }
+
+        while (w.heapSize > 0) {
+            long top = w.pop();
+            int f = (int) (top >>> 32), node = (int) top;
+            int d = w.dist[node];
+            if (f > d + heuristic(graph, w, node, endRow, endCol)) continue; // Stale entry
+            if (f >= w.best) break;                      // Nothing left can beat the best found
+            for (int k = 0; k < endCount; k++) {
+                if (w.endNode[k] == node && d + w.endLength[k] < w.best) {
+                    w.best = d + w.endLength[k];
+                    w.bestEnd = k;
+                }
+            }
+            for (int e = graph.edgeStart[node]; e < graph.edgeStart[node + 1]; e++) {
+                int next = graph.edgeTarget[e], nd = d + graph.edgeWeight[e];
+                w.relax(next, nd, nd + heuristic(graph, w, next, endRow, endCol), node, e, -1);
+            }
+        }
+        return w.best == Integer.MAX_VALUE ? -1 : w.best;
+    }
+
+    // Lower bound on the steps from a node to end: the larger of the Manhattan distance and,
+    // for each landmark that reaches both, the difference of their landmark distances
+    private int heuristic(Contraction graph, Workspace w, int node, int endRow, int endCol) {
+        int cell = graph.nodeCell[node];
+        int bound = Math.abs(maze.row(cell) - endRow) + Math.abs(maze.col(cell) - endCol);
+        for (int l = 0, at = node * Contraction.LANDMARKS; l < Contraction.LANDMARKS; l++, at++) {
+            int to = w.landmarkEnd[l], from = graph.landmarkDist[at];
+            if (to != Contraction.UNREACHED && from != Contraction.UNREACHED) {
+                bound = Math.max(bound, Math.abs(to - from));
+            }
+        }
+        return bound;
+    }
+
+    // Nodes reachable from cell along its corridors, with their distances and first steps.
+    // Sets w.best / w.directFirst if a corridor from cell reaches stop before any node.
+    private int attach(Contraction graph, Workspace w, int cell, int stop, int[] nodes, int[] lengths, int[] firsts) {
+        if (graph.nodeOf[cell] >= 0) {
+            nodes[0] = graph.nodeOf[cell];
+            lengths[0] = 0;
+            firsts[0] = -1;
+            return 1;
+        }
+        int count = 0;
+        for (int dir = 0; dir < 4; dir++) {
+            int first = maze.neighbour(cell, dir);
+            if (first < 0 || maze.isWall(first)) continue;
+            int reached = walk(graph, w, cell, first, stop, null);
+            if (reached < 0) continue;                   // Corridor loops back without a node
+            if (reached == stop) {
+                if (w.walkLength < w.best) {
+                    w.best = w.walkLength;
+                    w.directFirst = first;
+                }
+            } else {
+                nodes[count] = graph.nodeOf[reached];
+                lengths[count] = w.walkLength;
+                firsts[count] = first;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Follow the corridor entered by stepping from origin to cell until a node or stop is
+    // reached, returning that cell (-1 if the corridor loops back to a non-node origin).
+    // w.walkLength is set to the number of steps; cells passed are appended to out if given.
+    private int walk(Contraction graph, Workspace w, int origin, int cell, int stop, Workspace.IntList out) {
+        int from = origin, steps = 1;
+        while (true) {
+            if (out != null) out.add(cell);
+            if (cell == stop || graph.nodeOf[cell] >= 0) break;
+            if (cell == origin) return -1;
+            int next = -1;
+            for (int dir = 0; dir < 4 && next < 0; dir++) {
+                int candidate = maze.neighbour(cell, dir);
+                if (candidate >= 0 && candidate != from && !maze.isWall(candidate)) next = candidate;
+            }
+            from = cell;
+            cell = next;
+            steps++;
+        }
+        w.walkLength = steps;
+        return cell;
+    }
+
+    // Expand the winning node chain back into cells
+    private int[] reconstruct(Workspace w, int start, int end) {
+        Contraction graph = contraction;
+        Workspace.IntList path = w.path;
+        path.clear();
+        path.add(start);
+        if (start == end) return path.toArray();
+        if (w.bestEnd < 0) {                             // Start and end share a corridor
+            walk(graph, w, start, w.directFirst, end, path);
+            return path.toArray();
+        }
+        if (graph.forest) return treePath(graph, w, start, end);
+
+        Workspace.IntList chain = w.chain;               // Nodes from the end side back to a root
+        chain.clear();
+        for (int node = w.endNode[w.bestEnd]; node >= 0; node = w.predNode[node]) chain.add(node);
+        int root = chain.get(chain.size() - 1);
+        if (w.rootFirst[root] >= 0) walk(graph, w, start, w.rootFirst[root], -1, path);
+        for (int i = chain.size() - 2; i >= 0; i--) {
+            int node = chain.get(i), edge = w.predEdge[node];
+            int fromCell = graph.nodeCell[w.predNode[node]];
+            walk(graph, w, fromCell, graph.edgeFirst[edge], -1, path);
+        }
+        if (w.endFirst[w.bestEnd] >= 0) {                // Last corridor, walked from end and reversed
+            Workspace.IntList tail = w.chain;
+            tail.clear();
+            walk(graph, w, end, w.endFirst[w.bestEnd], -1, tail);
+            for (int i = tail.size() - 2; i >= 0; i--) path.add(tail.get(i));
+            path.add(end);
+        }
+        return path.toArray();
+    }
+
+    // Start up the tree to the common ancestor, then down to end (collected from end upwards)
+    private int[] treePath(Contraction graph, Workspace w, int start, int end) {
+        Workspace.IntList path = w.path;
+        int u = w.startNode[w.bestStart], v = w.endNode[w.bestEnd];
+        if (w.startFirst[w.bestStart] >= 0) walk(graph, w, start, w.startFirst[w.bestStart], -1, path);
+        for (int node = u; node != w.lca; node = graph.treeParent[node]) {
+            walk(graph, w, graph.nodeCell[node], graph.edgeFirst[graph.treeEdge[node]], -1, path);
+        }
+        Workspace.IntList tail = w.chain;
+        tail.clear();
+        tail.add(end);
+        if (w.endFirst[w.bestEnd] >= 0) walk(graph, w, end, w.endFirst[w.bestEnd], -1, tail);
+        for (int node = v; node != w.lca; node = graph.treeParent[node]) {
+            walk(graph, w, graph.nodeCell[node], graph.edgeFirst[graph.treeEdge[node]], -1, tail);
+        }
+        for (int i = tail.size() - 2; i >= 0; i--) path.add(tail.get(i)); // Ancestor is already in path
+        return path.toArray();
+    }
+
+    private Contraction contraction() {
+        Contraction graph = contraction;
+        if (graph == null) {
+            synchronized (this) {
+                graph = contraction;
+                if (graph == null) contraction = graph = new Contraction(maze);
+            }
+        }
+        return graph;
+    }
+
+    // Queries answered from the BFS-tree cache, and BFS trees computed
+    long getTreeHits() {
+        return treeHits.sum();
+    }
+
+    long getTreeMisses() {
+        return treeMisses.sum();
+    }
+
+    // Size of the contracted graph, building it if needed
+    String describeContraction() {
+        Contraction graph = contraction();
+        return String.format("%d nodes, %d corridors for %d cells (%s)", graph.nodeCell.length,
+            graph.edgeTarget.length / 2, maze.size(), graph.forest ? "tree, LCA queries"
+                : "has loops, A* queries with " + Contraction.LANDMARKS + " landmarks");
+    }
+
+    // Distances for the queries (starts[i], ends[i]), split into partitions tasks on the executor
+    int[] distances(int[] starts, int[] ends, boolean contracted, ExecutorService executor, int partitions)
+            throws InterruptedException {
+        int[] result = new int[starts.length];
+        List<Callable<Void>> tasks = new ArrayList<>(partitions);
+        int chunk = Math.max(1, (starts.length + partitions - 1) / partitions);
+        for (int from = 0; from < starts.length; from += chunk) {
+            int first = from, last = Math.min(starts.length, from + chunk);
+            tasks.add(() -> {
+                for (int i = first; i < last; i++) {
+                    result[i] = contracted ? contractedDistance(starts[i], ends[i]) : distance(starts[i], ends[i]);
+                }
+                return null;
+            });
+        }
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Path query failed", e.getCause());
+            }
+        }
+        return result;
+    }
+
+    // Nodes and corridor edges of the maze, in compressed sparse row form
+    private static final class Contraction {
+        final int[] nodeOf;     // Node id of each cell, or -1 for walls and corridor cells
+        final int[] nodeCell;   // Cell of each node
+        final int[] edgeStart;  // Edges of node n are edgeStart[n] until edgeStart[n + 1]
+        final int[] edgeTarget, edgeWeight;
+        final int[] edgeFirst;  // Cell next to the source node along the corridor
+        // Only when the graph is a forest (no loops): a rooted spanning tree per component
+        final boolean forest;
+        int[] component;        // Root node of each node's component
+        int[] treeParent;       // Parent node (the root is its own parent)
+        int[] treeEdge;         // Edge from each node to its parent
+        int[] depth;            // Steps from the root
+        int[] level;            // Edges from the root
+        int[] up;               // up[k * nodes + n] = 2^k-th ancestor of n
+        int levels;
+        // Only when the graph has loops: steps from each landmark, landmarkDist[n * LANDMARKS + l]
+        static final int LANDMARKS = 8;
+        static final int UNREACHED = Integer.MAX_VALUE;
+        int[] landmarkDist;
+
+        Contraction(MazeGrid maze) {
+            nodeOf = new int[maze.size()];
+            int nodes = 0, edges = 0;
+            for (int cell = 0; cell < maze.size(); cell++) {
+                int degree = maze.isWall(cell) ? -1 : degree(maze, cell);
+                if (degree < 0 || degree == 2) {
+                    nodeOf[cell] = -1;
+                } else {
+                    nodeOf[cell] = nodes++;
+                    edges += degree;
+                }
+            }
+            nodeCell = new int[nodes];
+            edgeStart = new int[nodes + 1];
+            edgeTarget = new int[edges];
+            edgeWeight = new int[edges];
+            edgeFirst = new int[edges];
+            int e = 0;
+            for (int cell = 0; cell < maze.size(); cell++) {
+                int node = nodeOf[cell];
+                if (node < 0) continue;
+                nodeCell[node] = cell;
+                edgeStart[node] = e;
+                for (int dir = 0; dir < 4; dir++) {
+                    int first = maze.neighbour(cell, dir);
+                    if (first < 0 || maze.isWall(first)) continue;
+                    int from = cell, at = first, steps = 1;
+                    while (nodeOf[at] < 0) {     // Corridor cell: exactly one way on
+                        int next = -1;
+                        for (int d = 0; d < 4 && next < 0; d++) {
+                            int candidate = maze.neighbour(at, d);
+                            if (candidate >= 0 && candidate != from && !maze.isWall(candidate)) next = candidate;
+                        }
+                        from = at;
+                        at = next;
+                        steps++;
+                    }
+                    edgeTarget[e] = at;  // Cell for now; turned into a node id below
+                    edgeWeight[e] = steps;
+                    edgeFirst[e] = first;
+                    e++;
+                }
+            }
+            edgeStart[nodes] = e;
+            for (int i = 0; i < e; i++) edgeTarget[i] = nodeOf[edgeTarget[i]];
+            forest = buildForest(nodes);
+            if (!forest) buildLandmarks(nodes);
+        }
+
+        // Pick landmarks far apart (each one the node farthest from those already picked, the
+        // first one farthest from node 0) and keep their Dijkstra distances to every node
+        private void buildLandmarks(int nodes) {
+            landmarkDist = new int[nodes * LANDMARKS];
+            Arrays.fill(landmarkDist, UNREACHED);
+            int[] nearest = new int[nodes];          // Distance to the closest landmark so far
+            Arrays.fill(nearest, UNREACHED);
+            Workspace w = new Workspace();
+            dijkstra(w, 0);
+            int landmark = farthest(w, w.dist);
+            for (int l = 0; l < LANDMARKS; l++) {
+                dijkstra(w, landmark);
+                for (int node = 0; node < nodes; node++) {
+                    if (w.mark[node] != w.epoch) continue;
+                    landmarkDist[node * LANDMARKS + l] = w.dist[node];
+                    nearest[node] = Math.min(nearest[node], w.dist[node]);
+                }
+                landmark = farthest(w, nearest);
+            }
+        }
+
+        // Node reached by the last search with the largest distance in the given array
+        private static int farthest(Workspace w, int[] distance) {
+            int best = -1;
+            for (int node = 0; node < w.mark.length; node++) {
+                if (w.mark[node] != w.epoch) continue;
+                if (best < 0 || distance[node] > distance[best]) best = node;
+            }
+            return best;
+        }
+
+        // Distances from source to every node it reaches, left in w (reached: mark == epoch)
+        private void dijkstra(Workspace w, int source) {
+            w.begin(nodeCell.length);
+            w.relax(source, 0, 0, -1, -1, -1);
+            while (w.heapSize > 0) {
+                long top = w.pop();
+                int d = (int) (top >>> 32), node = (int) top;
+                if (d > w.dist[node]) continue;      // Stale entry
+                for (int e = edgeStart[node]; e < edgeStart[node + 1]; e++) {
+                    w.relax(edgeTarget[e], d + edgeWeight[e], d + edgeWeight[e], node, e, -1);
+                }
+            }
+        }
+
+        // Root every component by BFS; if no component has a loop, keep the tree and its
+        // ancestor tables, otherwise drop them and report false
+        private boolean buildForest(int nodes) {
+            component = new int[nodes];
+            treeParent = new int[nodes];
+            treeEdge = new int[nodes];
+            depth = new int[nodes];
+            level = new int[nodes];
+            Arrays.fill(component, -1);
+            int[] queue = new int[nodes];
+            int components = 0, maxLevel = 0;
+            for (int root = 0; root < nodes; root++) {
+                if (component[root] >= 0) continue;
+                components++;
+                component[root] = root;
+                treeParent[root] = root;
+                treeEdge[root] = -1;
+                int head = 0, tail = 0;
+                queue[tail++] = root;
+                while (head < tail) {
+                    int node = queue[head++];
+                    for (int e = edgeStart[node]; e < edgeStart[node + 1]; e++) {
+                        int next = edgeTarget[e];
+                        if (component[next] >= 0) continue;
+                        component[next] = root;
+                        treeParent[next] = node;
+                        depth[next] = depth[node] + edgeWeight[e];
+                        level[next] = level[node] + 1;
+                        maxLevel = Math.max(maxLevel, level[next]);
+                        queue[tail++] = next;
+                    }
+                }
+            }
+            if (edgeTarget.length / 2 != nodes - components) { // Some corridor closes a loop
+                component = treeParent = treeEdge = depth = level = null;
+                return false;
+            }
+            for (int node = 0; node < nodes; node++) {
+                if (treeParent[node] == node) continue;
+                for (int e = edgeStart[node]; e < edgeStart[node + 1]; e++) {
+                    if (edgeTarget[e] == treeParent[node]) treeEdge[node] = e; // The only edge to it
+                }
+            }
+            levels = 32 - Integer.numberOfLeadingZeros(Math.max(1, maxLevel));
+            up = new int[levels * nodes];
+            System.arraycopy(treeParent, 0, up, 0, nodes);
+            for (int k = 1; k < levels; k++) {
+                for (int node = 0; node < nodes; node++) {
+                    up[k * nodes + node] = up[(k - 1) * nodes + up[(k - 1) * nodes + node]];
+                }
+            }
+            return true;
+        }
+
+        // Lowest common ancestor of two nodes in the same component
+        int lca(int a, int b) {
+            int nodes = treeParent.length;
+            if (level[a] < level[b]) {
+                int t = a;
+                a = b;
+                b = t;
+            }
+            for (int k = levels - 1; k >= 0; k--) {      // Lift a to b's level
+                if (level[a] - (1 << k) >= level[b]) a = up[k * nodes + a];
+            }
+            if (a == b) return a;
+            for (int k = levels - 1; k >= 0; k--) {      // Lift both to just below the ancestor
+                int ua = up[k * nodes + a], ub = up[k * nodes + b];
+                if (ua != ub) {
+                    a = ua;
+                    b = ub;
+                }
+            }
+            return treeParent[a];
+        }
+
+        private static int degree(MazeGrid maze, int cell) {
+            int degree = 0;
+            for (int dir = 0; dir < 4; dir++) {
+                int next = maze.neighbour(cell, dir);
+                if (next >= 0 && !maze.isWall(next)) degree++;
+            }
+            return degree;
+        }
+    }
+
+    // Per-thread A* state over the contracted graph, stamped with an epoch per query
+    private static final class Workspace {
+        int[] dist = new int[0], mark = new int[0], predNode = new int[0], predEdge = new int[0], rootFirst = new int[0];
+        long[] heap = new long[64];
+        int heapSize, epoch;
+        final int[] startNode = new int[4], startLength = new int[4], startFirst = new int[4];
+        final int[] endNode = new int[4], endLength = new int[4], endFirst = new int[4];
+        final int[] landmarkEnd = new int[Contraction.LANDMARKS]; // Landmark distances to end
+        int best, bestStart, bestEnd, lca, directFirst, walkLength;
+        final IntList path = new IntList(), chain = new IntList();
+
+        void begin(int nodes) {
+            if (dist.length != nodes) {
+                dist = new int[nodes];
+                mark = new int[nodes];
+                predNode = new int[nodes];
+                predEdge = new int[nodes];
+                rootFirst = new int[nodes];
+                epoch = 0;
+            }
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(mark, 0);
+                epoch = 1;
+            }
+            heapSize = 0;
+        }
+
+        // Lower node's distance to d (reached from pred over edge, or from the query cell if
+        // pred < 0) and queue it with the given priority
+        void relax(int node, int d, int priority, int pred, int edge, int first) {
+            if (mark[node] == epoch && dist[node] <= d) return;
+            mark[node] = epoch;
+            dist[node] = d;
+            predNode[node] = pred;
+            predEdge[node] = edge;
+            rootFirst[node] = first;
+            if (heapSize == heap.length) heap = Arrays.copyOf(heap, heapSize * 2);
+            long entry = ((long) priority << 32) | node;
+            int i = heapSize++;
+            while (i > 0) {
+                int up = (i - 1) >>> 1;
+                if (heap[up] <= entry) break;
+                heap[i] = heap[up];
+                i = up;
+            }
+            heap[i] = entry;
+        }
+
+        long pop() {
+            long top = heap[0], last = heap[--heapSize];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= heapSize) break;
+                if (child + 1 < heapSize && heap[child + 1] < heap[child]) child++;
+                if (heap[child] >= last) break;
+                heap[i] = heap[child];
+                i = child;
+            }
+            if (heapSize > 0) heap[i] = last;
+            return top;
+        }
+
+        // Growable int array, reused between queries
+        static final class IntList {
+            private int[] items = new int[64];
+            private int size;
+
+            void add(int value) {
+                if (size == items.length) items = Arrays.copyOf(items, size * 2);
+                items[size++] = value;
+            }
+
+            int get(int i) {
+                return items[i];
+            }
+
+            int size() {
+                return size;
+            }
+
+            void clear() {
+                size = 0;
+            }
+
+            int[] toArray() {
+                return Arrays.copyOf(items, size);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        java.util.Map<String, String> options = new java.util.TreeMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        int rows = Integer.parseInt(options.getOrDefault("rows", "2001")) | 1;
+        int cols = Integer.parseInt(options.getOrDefault("cols", "2001")) | 1;
+        int queries = Integer.parseInt(options.getOrDefault("queries", "100000"));
+        int sources = Integer.parseInt(options.getOrDefault("sources", "16"));
+        int maxTrees = Integer.parseInt(options.getOrDefault("trees", "16"));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+            String.valueOf(Runtime.getRuntime().availableProcessors())));
+        SplittableRandom random = new SplittableRandom(Long.parseLong(options.getOrDefault("seed", "1")));
+
+        MazeGrid maze = new MazeGrid(rows, cols);
+        if (options.getOrDefault("generator", "backtracker").equals("eller")) {
+            MazeGenerator.eller(maze, random);
+        } else {
+            MazeGenerator.backtracker(maze, random);
+        }
+        double loops = Double.parseDouble(options.getOrDefault("loops", "0"));
+        for (int cell = 0; cell < maze.size() && loops > 0; cell++) {
+            boolean between = ((maze.row(cell) + maze.col(cell)) & 1) == 1; // Wall slot between two rooms
+            if (between && maze.isWall(cell) && random.nextDouble() < loops) maze.setWall(cell, false);
+        }
+        // Queries between rooms (even coordinates), starting from a few popular sources
+        int[] sourceCells = new int[sources];
+        for (int i = 0; i < sources; i++) sourceCells[i] = randomRoom(maze, random);
+        int[] starts = new int[queries], ends = new int[queries];
+        for (int i = 0; i < queries; i++) {
+            starts[i] = sourceCells[random.nextInt(sources)];
+            ends[i] = randomRoom(maze, random);
+        }
+
+        MazePathService service = new MazePathService(maze, maxTrees);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long begin = System.nanoTime();
+            System.out.println("Contracted graph: " + service.describeContraction()
+                + String.format(", built in %.1fms", (System.nanoTime() - begin) / 1e6));
+            begin = System.nanoTime();
+            int[] byTree = service.distances(starts, ends, false, executor, threads * 4);
+            report("BFS-tree cache", queries, System.nanoTime() - begin, threads);
+            System.out.printf("  %d trees computed, %d cache hits%n", service.getTreeMisses(), service.getTreeHits());
+            begin = System.nanoTime();
+            int[] byGraph = service.distances(starts, ends, true, executor, threads * 4);
+            report("Contracted graph", queries, System.nanoTime() - begin, threads);
+            System.out.println(Arrays.equals(byTree, byGraph) ? "Both agree on every distance." : "Distances DIFFER!");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static int randomRoom(MazeGrid maze, SplittableRandom random) {
+        return maze.index(2 * random.nextInt((maze.rows + 1) / 2), 2 * random.nextInt((maze.cols + 1) / 2));
+    }
+
+    private static void report(String label, int queries, long nanos, int threads) {
+        System.out.printf("%s: %d queries in %.1fms on %d threads (%.1fus per query, %.0f queries/s)%n",
+            label, queries, nanos / 1e6, threads, nanos / 1e3 / queries * threads, queries / (nanos / 1e9));
+    }
+}
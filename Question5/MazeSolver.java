@@ -3,7 +3,6 @@ package Question5;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.*; // Import all utilities including List, ArrayList, Stack, Queue, Collections, etc.
 
 // Main class extending JFrame to create the window for the Maze Solver
 public class MazeSolver extends JFrame {
@@ -16,11 +15,19 @@ public class MazeSolver extends JFrame {
         // Buttons for controlling the maze solving and resetting
         JButton dfsBtn = new JButton("Solve DFS");
         JButton bfsBtn = new JButton("Solve BFS");
+        JButton aStarBtn = new JButton("Solve A*");
+        JButton biBfsBtn = new JButton("Solve Bidirectional BFS");
+        JButton compareBtn = new JButton("Compare Solvers");
+        JButton cachedBtn = new JButton("Cached Shortest Path");
         JButton resetBtn = new JButton("Generate New Maze");
 
         // Add action listeners for each button to trigger maze solving or generation
         dfsBtn.addActionListener(_ -> mazePanel.solveDFS());
         bfsBtn.addActionListener(_ -> mazePanel.solveBFS());
+        aStarBtn.addActionListener(_ -> mazePanel.solve(MazeGrid.Algorithm.A_STAR));
+        biBfsBtn.addActionListener(_ -> mazePanel.solve(MazeGrid.Algorithm.BIDIRECTIONAL_BFS));
+        compareBtn.addActionListener(_ -> mazePanel.compareSolvers());
+        cachedBtn.addActionListener(_ -> mazePanel.solveCached());
         resetBtn.addActionListener(_ -> {
             mazePanel.generateMaze(); // Generate a new maze
             mazePanel.repaint();      // Redraw the maze panel
@@ -30,10 +37,19 @@ public class MazeSolver extends JFrame {
         JPanel controlPanel = new JPanel();
         controlPanel.add(dfsBtn);
         controlPanel.add(bfsBtn);
+        controlPanel.add(aStarBtn);
+        controlPanel.add(biBfsBtn);
+        controlPanel.add(compareBtn);
+        controlPanel.add(cachedBtn);
         controlPanel.add(resetBtn);
 
-        // Add the maze panel in the center and control panel at the bottom
-        add(mazePanel, BorderLayout.CENTER);
+        // Maze in a scroll pane (at most ~800px on screen; Ctrl + wheel zooms), controls at the bottom
+        JScrollPane mazeScroll = new JScrollPane(mazePanel);
+        Dimension mazeSize = mazePanel.getPreferredSize();
+        mazeScroll.getViewport().setPreferredSize(new Dimension(Math.min(mazeSize.width, 800), Math.min(mazeSize.height, 800)));
+        mazeScroll.getVerticalScrollBar().setUnitIncrement(16);
+        mazeScroll.getHorizontalScrollBar().setUnitIncrement(16);
+        add(mazeScroll, BorderLayout.CENTER);
         add(controlPanel, BorderLayout.SOUTH);
 
         pack(); // Adjust window size to fit contents
@@ -42,215 +58,221 @@ public class MazeSolver extends JFrame {
         setVisible(true); // Show the window
     }
 
+    // Headless API: run every algorithm from start to end on its own workspace and report
+    // the path length, cells expanded and time of each, so the cheapest one can be picked
+    static java.util.List<MazeGrid.SolveResult> compare(MazeGrid maze, int start, int end) {
+        java.util.List<MazeGrid.SolveResult> results = new java.util.ArrayList<>();
+        MazeGrid.Search search = new MazeGrid.Search(maze);
+        for (MazeGrid.Algorithm algorithm : MazeGrid.Algorithm.values()) {
+            results.add(search.solve(algorithm, start, end));
+        }
+        return results;
+    }
+
+    // Headless run: generate one maze and compare the solvers corner to corner.
+    // java Question5.MazeSolver --compare [rows=2001] [cols=2001] [seed=1] [generator=backtracker|eller]
+    static void compareFromCommandLine(String[] args) {
+        java.util.Map<String, String> options = new java.util.TreeMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        int rows = Integer.parseInt(options.getOrDefault("rows", "2001")) | 1;
+        int cols = Integer.parseInt(options.getOrDefault("cols", "2001")) | 1;
+        java.util.SplittableRandom random = new java.util.SplittableRandom(Long.parseLong(options.getOrDefault("seed", "1")));
+        boolean eller = options.getOrDefault("generator", "backtracker").equals("eller");
+
+        long start = System.nanoTime();
+        MazeGrid maze = new MazeGrid(rows, cols);
+        if (eller) {
+            MazeGenerator.eller(maze, random);
+        } else {
+            MazeGenerator.backtracker(maze, random);
+        }
+        System.out.printf("%dx%d maze (%s) generated in %.1fms%n", rows, cols,
+            eller ? "Eller" : "backtracker", (System.nanoTime() - start) / 1e6);
+        for (MazeGrid.SolveResult result : compare(maze, 0, maze.size() - 1)) {
+            System.out.println("  " + result);
+        }
+    }
+
     // Main method to launch the application on the Event Dispatch Thread
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--compare")) {
+            compareFromCommandLine(args);
+            return;
+        }
         SwingUtilities.invokeLater(MazeSolver::new);
     }
 }
 
-// Class representing each cell in the maze grid
-class Cell {
-    int row, col;       // Position of the cell in the maze grid
-    boolean isWall;     // True if the cell is a wall, false if path
-    boolean visited;    // Used during maze solving to mark visited cells
-    Cell parent;        // To track the path back from the end to start
-
-    // Constructor to initialize cell with position and wall status
-    public Cell(int row, int col, boolean isWall) {
-        this.row = row;
-        this.col = col;
-        this.isWall = isWall;
-        this.visited = false;  // Not visited initially
-        this.parent = null;    // No parent initially
-    }
-}
-
-// Panel that draws the maze and contains maze logic and solving algorithms
+// Panel that draws the maze and contains maze logic and solving algorithms.
+// The maze is kept as an off-screen image with one pixel per cell: walls and open cells are
+// drawn into it once per maze, and the animation only colours the cells expanded since the last
+// frame and repaints their bounding box. paintComponent scales just the part of the image inside
+// the clip (the visible viewport of the scroll pane), so the cost of a frame depends on the
+// window size, not on the size of the maze. Ctrl + mouse wheel zooms around the pointer.
 class MazePanel extends JPanel implements MouseListener {
-    private Cell[][] maze;                     // 2D array representing the maze grid
-    private java.util.List<Cell> path = new java.util.ArrayList<>(); // Final solved path cells
-    private final int rows = 21, cols = 21;   // Maze dimensions (odd for maze carving)
-    private final int cellSize = 25;           // Size of each cell in pixels
-    private Cell startCell, endCell;           // Start and end points in the maze
+    static final int MAX_CELL_SIZE = 40;       // Most zoomed-in cell size in pixels
+    static final int GRID_MIN_CELL_SIZE = 6;   // Cell borders are drawn from this size up
+    static final int FRAME_MILLIS = 30;        // Animation frame interval
+    static final int MAX_ANIMATION_FRAMES = 200; // Longer searches animate several cells per frame
+    private static final int WALL_RGB = 0x000000, OPEN_RGB = 0xFFFFFF, VISITED_RGB = 0xADD8E6, PATH_RGB = 0x00FF00;
+
+    private MazeGrid maze;                     // Flat grid of wall bits
+    private MazeGrid.Search search;            // Reused search state (parents, marks, visit order)
+    private int[] path = new int[0];           // Final solved path cells
+    // Maze dimensions from -Dmaze.rows / -Dmaze.cols, rounded up to odd so the border is closed
+    private final int rows = Integer.getInteger("maze.rows", 21) | 1, cols = Integer.getInteger("maze.cols", 21) | 1;
+    private int cellSize = Math.max(1, Math.min(25, 800 / Math.max(rows, cols))); // Pixels per cell; starts fitting ~800px
+    // Seeded from -Dmaze.seed when given, so the sequence of generated mazes is reproducible
+    private final java.util.SplittableRandom random = Long.getLong("maze.seed") != null
+        ? new java.util.SplittableRandom(Long.getLong("maze.seed"))
+        : new java.util.SplittableRandom();
+    private final boolean eller = "eller".equals(System.getProperty("maze.generator")); // Default: backtracker
+    private int startCell, endCell;            // Start and end points in the maze (cell indices)
+    private java.awt.image.BufferedImage image; // One pixel per cell: walls, open, visited and path colours
+    private int[] pixels;                      // The image's backing array, written directly
 
     private javax.swing.Timer timer;           // Timer for animating the solving process
-    private int timerIndex;                    // Index to track animation progress
+    private int timerIndex;                    // Expanded cells already drawn into the image
     private boolean solving = false;           // Flag to prevent multiple simultaneous solves
-
-    private java.util.List<Cell> visitOrder = new java.util.ArrayList<>(); // Order cells are visited
+    private MazeGrid.SolveResult lastResult;   // Path, cells expanded and time of the last solve
+    private MazePathService pathService;       // Cached BFS trees for the current maze; dropped on regenerate
+    private int visitCount = 0;                // Cells expanded by the last search, in search.expandedAt order
 
     // Constructor to set panel size, add mouse listener, generate initial maze
     public MazePanel() {
         setPreferredSize(new Dimension(cols * cellSize, rows * cellSize)); // Panel size based on maze
         addMouseListener(this);    // Add mouse interaction to allow start/end selection
+        addMouseWheelListener(this::wheelMoved);
         generateMaze();            // Generate the initial maze layout
-        startCell = maze[0][0];    // Default start at top-left corner
-        endCell = maze[rows - 1][cols - 1]; // Default end at bottom-right corner
     }
 
-    // Method to generate a new maze using recursive backtracking carving
+    // Method to generate a new maze with the configured generator
     public void generateMaze() {
-        maze = new Cell[rows][cols]; // Initialize maze grid
-
-        // Initially set every cell as a wall
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                maze[r][c] = new Cell(r, c, true);
-            }
+        if (maze == null) {
+            maze = new MazeGrid(rows, cols);   // Allocated once, reused by every new maze
+            search = new MazeGrid.Search(maze);
+            search.recordOrder = true;         // The animation replays the visit order
+            image = new java.awt.image.BufferedImage(cols, rows, java.awt.image.BufferedImage.TYPE_INT_RGB);
+            pixels = ((java.awt.image.DataBufferInt) image.getRaster().getDataBuffer()).getData();
         }
+        resetMaze();                           // Stop any animation on the old maze
 
-        carvePassagesFrom(0, 0); // Start carving from the top-left cell
-
-        // Set start and end cells explicitly as paths (not walls)
-        startCell = maze[0][0];
-        endCell = maze[rows - 1][cols - 1];
-        startCell.isWall = false;
-        endCell.isWall = false;
-
-        path.clear();       // Clear previous solution path
-        visitOrder.clear(); // Clear previous visited order
-        repaint();          // Redraw panel with new maze
-    }
-
-    // Recursive backtracking method to carve passages in the maze grid
-    private void carvePassagesFrom(int r, int c) {
-        maze[r][c].isWall = false; // Mark current cell as path
-
-        int[] dr = {-1, 1, 0, 0};  // Direction vectors for rows (up/down)
-        int[] dc = {0, 0, -1, 1};  // Direction vectors for cols (left/right)
-        java.util.List<Integer> dirs = java.util.Arrays.asList(0, 1, 2, 3);
-        java.util.Collections.shuffle(dirs); // Shuffle directions to randomize maze
-
-        // Try carving in each direction
-        for (int i : dirs) {
-            int nr = r + dr[i] * 2; // Move two cells in chosen direction (skip walls)
-            int nc = c + dc[i] * 2;
-
-            // Check if new cell is inside maze and is still a wall
-            if (nr >= 0 && nr < rows && nc >= 0 && nc < cols && maze[nr][nc].isWall) {
-                // Remove wall between current and new cell
-                maze[r + dr[i]][c + dc[i]].isWall = false;
-                carvePassagesFrom(nr, nc); // Recurse from new cell
-            }
+        // Iterative carving (explicit stack) or Eller's row-by-row algorithm
+        if (eller) {
+            MazeGenerator.eller(maze, random);
+        } else {
+            MazeGenerator.backtracker(maze, random);
         }
-    }
 
-    // Get all valid neighbor cells (up/down/left/right) of a given cell
-    private java.util.List<Cell> getNeighbors(Cell cell) {
-        java.util.List<Cell> neighbors = new java.util.ArrayList<>();
-        int[] dr = {-1, 1, 0, 0};
-        int[] dc = {0, 0, -1, 1};
-
-        for (int i = 0; i < 4; i++) {
-            int nr = cell.row + dr[i];
-            int nc = cell.col + dc[i];
+        // Set start and end cells explicitly as paths (not walls)
+        startCell = maze.index(0, 0);
+        endCell = maze.index(rows - 1, cols - 1);
+        maze.setWall(startCell, false);
+        maze.setWall(endCell, false);
 
-            // Only add neighbors inside bounds
-            if (nr >= 0 && nr < rows && nc >= 0 && nc < cols) {
-                neighbors.add(maze[nr][nc]);
-            }
+        for (int cell = 0; cell < pixels.length; cell++) {  // Render walls and paths once
+            pixels[cell] = maze.isWall(cell) ? WALL_RGB : OPEN_RGB;
         }
-        return neighbors;
+        path = new int[0];  // Clear previous solution path
+        visitCount = 0;     // Clear previous visited order
+        timerIndex = 0;
+        pathService = null; // Its trees describe the old maze
+        repaint();          // Redraw panel with new maze
     }
 
-    // Reset maze cells before solving: clear visited flags, parents, path and stops timer
+    // Stop any running animation and clear the previous solution
     private void resetMaze() {
-        for (Cell[] row : maze) {
-            for (Cell cell : row) {
-                cell.visited = false;
-                cell.parent = null;
-            }
-        }
-        path.clear();       // Clear any previous solution path
-        visitOrder.clear(); // Clear the visit order list
-        solving = false;    // Reset solving flag
+        solving = false;   // Reset solving flag
         if (timer != null && timer.isRunning()) {
             timer.stop();  // Stop animation timer if running
         }
+        if (pixels != null) {
+            // Undo only what the last solve drew, before the next search overwrites its visit order
+            for (int i = 0; i < timerIndex; i++) pixels[search.expandedAt(i)] = OPEN_RGB;
+            for (int cell : path) pixels[cell] = OPEN_RGB;
+        }
+        timerIndex = 0;
+        path = new int[0]; // Clear any previous solution path
+        visitCount = 0;    // Clear the visit order
+        repaint();
     }
 
     // Solve the maze using Depth-First Search algorithm
     public void solveDFS() {
-        if (solving) return; // Prevent multiple solves at once
-        resetMaze();         // Reset the maze state before solving
-        solving = true;      // Mark as solving to block input
-
-        Stack<Cell> stack = new Stack<>();
-        stack.push(startCell); // Start from startCell
-
-        visitOrder.clear(); // Clear visit order
-
-        // DFS loop until stack is empty
-        while (!stack.isEmpty()) {
-            Cell current = stack.pop();
-            if (current.visited || current.isWall) continue; // Skip visited or walls
-
-            current.visited = true;
-            visitOrder.add(current); // Record order of visits
-
-            if (current == endCell) break; // Stop if reached the end
-
-            // Push all unvisited, non-wall neighbors onto stack
-            for (Cell neighbor : getNeighbors(current)) {
-                if (!neighbor.visited && !neighbor.isWall) {
-                    neighbor.parent = current; // Track path
-                    stack.push(neighbor);
-                }
-            }
-        }
-
-        startAnimation(); // Start animating the solve process
+        solve(MazeGrid.Algorithm.DFS);
     }
 
     // Solve the maze using Breadth-First Search algorithm
     public void solveBFS() {
-        if (solving) return; // Prevent multiple solves at once
-        resetMaze();         // Reset maze state before solving
-        solving = true;      // Mark as solving
-
-        Queue<Cell> queue = new LinkedList<>();
-        queue.add(startCell); // Start from startCell
-
-        visitOrder.clear(); // Clear visit order
+        solve(MazeGrid.Algorithm.BFS);
+    }
 
-        // BFS loop until queue is empty
-        while (!queue.isEmpty()) {
-            Cell current = queue.poll();
-            if (current.visited || current.isWall) continue; // Skip visited or walls
+    // Solve the maze with any algorithm, then animate the cells it expanded
+    public void solve(MazeGrid.Algorithm algorithm) {
+        if (solving) return; // Prevent multiple solves at once
+        resetMaze();         // Reset the maze state before solving
+        solving = true;      // Mark as solving to block input
 
-            current.visited = true;
-            visitOrder.add(current); // Record order of visits
+        lastResult = search.solve(algorithm, startCell, endCell); // Visit marks reset in O(1)
+        startAnimation();    // Start animating the solve process
+    }
 
-            if (current == endCell) break; // Stop if reached the end
+    // Show a shortest path straight away from the path service. The first query from a start
+    // cell runs one BFS over the whole maze; moving the end afterwards reuses that tree.
+    public void solveCached() {
+        if (solving) return;
+        resetMaze();
+        if (pathService == null) pathService = new MazePathService(maze, 8);
+        boolean cached = pathService.isCached(startCell) || pathService.isCached(endCell);
+        long begin = System.nanoTime();
+        showPath(pathService.shortestPath(startCell, endCell));
+        String message = String.format("%s (%s BFS tree) in %.2fms",
+            path.length > 0 ? "Path of " + path.length + " cells" : "No path",
+            cached ? "cached" : "new", (System.nanoTime() - begin) / 1e6);
+        JOptionPane.showMessageDialog(this, message);
+    }
 
-            // Enqueue all unvisited, non-wall neighbors
-            for (Cell neighbor : getNeighbors(current)) {
-                if (!neighbor.visited && !neighbor.isWall) {
-                    neighbor.parent = current; // Track path
-                    queue.add(neighbor);
-                }
-            }
+    // Run every algorithm on the current maze without animation and show how they compare
+    public void compareSolvers() {
+        if (solving) return;
+        resetMaze();
+        StringBuilder text = new StringBuilder();
+        for (MazeGrid.SolveResult result : MazeSolver.compare(maze, startCell, endCell)) {
+            text.append(result).append('\n');
         }
-
-        startAnimation(); // Start animating the solve process
+        JOptionPane.showMessageDialog(this, text.toString(), "Solver comparison", JOptionPane.INFORMATION_MESSAGE);
     }
 
-    // Animate the visiting order and final path using a timer
+    // Animate the visiting order and final path using a timer. Every frame draws the next batch
+    // of expanded cells into the image, so even a search of millions of cells finishes within
+    // MAX_ANIMATION_FRAMES frames and each frame only touches the cells it adds.
     private void startAnimation() {
-        timerIndex = 0; // Reset animation index
-        path.clear();   // Clear any previous path
-
-        // Timer fires every 30ms to animate the solution steps
-        timer = new javax.swing.Timer(30, _ -> {  // unused lambda param replaced by _
-            if (timerIndex < visitOrder.size()) {
-                repaint();   // Repaint to show visited cells animation
-                timerIndex++;
+        timerIndex = 0;                    // Reset animation index
+        visitCount = search.expandedCount();
+        int step = Math.max(1, (visitCount + MAX_ANIMATION_FRAMES - 1) / MAX_ANIMATION_FRAMES);
+
+        timer = new javax.swing.Timer(FRAME_MILLIS, _ -> {  // unused lambda param replaced by _
+            if (timerIndex < visitCount) {
+                int until = Math.min(visitCount, timerIndex + step);
+                int minRow = rows, maxRow = -1, minCol = cols, maxCol = -1;
+                for (; timerIndex < until; timerIndex++) {
+                    int cell = search.expandedAt(timerIndex);
+                    pixels[cell] = VISITED_RGB;
+                    int r = maze.row(cell), c = maze.col(cell);
+                    minRow = Math.min(minRow, r);
+                    maxRow = Math.max(maxRow, r);
+                    minCol = Math.min(minCol, c);
+                    maxCol = Math.max(maxCol, c);
+                }
+                repaintCells(minRow, minCol, maxRow, maxCol); // Only the area that changed
             } else {
-                // After all visits animated, reconstruct path if exists
-                if (endCell.parent != null) {
-                    reconstructPath(endCell); // Backtrack path from end to start
-                    repaint();                // Repaint to show final path
-                    JOptionPane.showMessageDialog(this, "Maze solved successfully!");
+                // After all visits animated, show the path if one exists
+                if (lastResult.found()) {
+                    showPath(lastResult.path); // Path from start to end
+                    JOptionPane.showMessageDialog(this, "Maze solved successfully!\n" + lastResult);
                 } else {
                     JOptionPane.showMessageDialog(this, "No path found! Try regenerating the maze.");
                 }
@@ -261,55 +283,78 @@ class MazePanel extends JPanel implements MouseListener {
         timer.start(); // Start the animation timer
     }
 
-    // Backtrack from the end cell to start cell via parent links to build the path
-    private void reconstructPath(Cell end) {
-        path.clear();
-        for (Cell c = end; c != null; c = c.parent) {
-            path.add(c);
-        }
-        java.util.Collections.reverse(path); // Reverse to get path start->end order
+    // Draw a path into the image and repaint it
+    private void showPath(int[] cells) {
+        path = cells;
+        for (int cell : path) pixels[cell] = PATH_RGB;
+        repaint();
+    }
+
+    // Repaint the panel area covering the given block of cells
+    private void repaintCells(int minRow, int minCol, int maxRow, int maxCol) {
+        if (maxRow < minRow) return;
+        repaint(minCol * cellSize, minRow * cellSize,
+            (maxCol - minCol + 1) * cellSize + 1, (maxRow - minRow + 1) * cellSize + 1);
     }
 
-    // Override paintComponent to draw the maze, visited cells, path, start and end
+    // Fill one cell's square
+    private void fillCell(Graphics g, int cell) {
+        g.fillRect(maze.col(cell) * cellSize, maze.row(cell) * cellSize, cellSize, cellSize);
+    }
+
+    // Override paintComponent to draw the visible part of the maze image, then start and end
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
 
-        // Draw the maze grid
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                Cell cell = maze[r][c];
-                if (cell.isWall) {
-                    g.setColor(Color.BLACK); // Wall cells in black
-                } else {
-                    g.setColor(Color.WHITE); // Path cells in white
-                }
-                g.fillRect(c * cellSize, r * cellSize, cellSize, cellSize);
-                g.setColor(Color.GRAY);
-                g.drawRect(c * cellSize, r * cellSize, cellSize, cellSize); // Cell border
-            }
-        }
-
-        // Draw visited cells in light blue (animated)
-        g.setColor(new Color(173, 216, 230));
-        for (int i = 0; i < Math.min(timerIndex, visitOrder.size()); i++) {
-            Cell v = visitOrder.get(i);
-            g.fillRect(v.col * cellSize, v.row * cellSize, cellSize, cellSize);
-        }
-
-        // Draw the final solved path in green
-        g.setColor(Color.GREEN);
-        for (Cell cell : path) {
-            g.fillRect(cell.col * cellSize, cell.row * cellSize, cellSize, cellSize);
+        // Cells inside the clip; everything outside the viewport is skipped
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) clip = new Rectangle(0, 0, cols * cellSize, rows * cellSize);
+        int c0 = Math.max(0, clip.x / cellSize), r0 = Math.max(0, clip.y / cellSize);
+        int c1 = Math.min(cols, (clip.x + clip.width) / cellSize + 1);
+        int r1 = Math.min(rows, (clip.y + clip.height) / cellSize + 1);
+        if (c0 >= c1 || r0 >= r1) return;
+
+        // Scale just those cells of the image (walls, visited cells and path) onto the panel
+        g.drawImage(image, c0 * cellSize, r0 * cellSize, c1 * cellSize, r1 * cellSize, c0, r0, c1, r1, null);
+
+        // Cell borders, when cells are big enough to see them
+        if (cellSize >= GRID_MIN_CELL_SIZE) {
+            g.setColor(Color.GRAY);
+            for (int r = r0; r <= r1; r++) g.drawLine(c0 * cellSize, r * cellSize, c1 * cellSize, r * cellSize);
+            for (int c = c0; c <= c1; c++) g.drawLine(c * cellSize, r0 * cellSize, c * cellSize, r1 * cellSize);
         }
 
         // Draw the start cell in blue
         g.setColor(Color.BLUE);
-        g.fillRect(startCell.col * cellSize, startCell.row * cellSize, cellSize, cellSize);
+        fillCell(g, startCell);
 
         // Draw the end cell in red
         g.setColor(Color.RED);
-        g.fillRect(endCell.col * cellSize, endCell.row * cellSize, cellSize, cellSize);
+        fillCell(g, endCell);
+    }
+
+    // Ctrl + wheel zooms around the pointer; a plain wheel scrolls the enclosing scroll pane
+    private void wheelMoved(MouseWheelEvent e) {
+        if (!e.isControlDown()) {
+            getParent().dispatchEvent(SwingUtilities.convertMouseEvent(this, e, getParent()));
+            return;
+        }
+        int zoomed = e.getWheelRotation() < 0 ? Math.min(MAX_CELL_SIZE, cellSize * 2) : Math.max(1, cellSize / 2);
+        if (zoomed == cellSize) return;
+        double col = e.getX() / (double) cellSize, row = e.getY() / (double) cellSize; // Cell under the pointer
+        JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+        Point view = viewport != null ? viewport.getViewPosition() : new Point();
+        cellSize = zoomed;
+        setPreferredSize(new Dimension(cols * cellSize, rows * cellSize));
+        setSize(getPreferredSize());
+        revalidate();
+        if (viewport != null) {                   // Keep that cell under the pointer
+            viewport.setViewPosition(new Point(
+                Math.max(0, (int) (col * cellSize) - (e.getX() - view.x)),
+                Math.max(0, (int) (row * cellSize) - (e.getY() - view.y))));
+        }
+        repaint();
     }
 
     // Mouse click handler to allow user to set start (left click) and end (right click) points
@@ -321,17 +366,15 @@ class MazePanel extends JPanel implements MouseListener {
         int r = e.getY() / cellSize; // Calculate row clicked
         if (r < 0 || r >= rows || c < 0 || c >= cols) return; // Outside bounds
 
-        Cell clicked = maze[r][c];
-        if (clicked.isWall) return; // Ignore clicks on walls
+        int clicked = maze.index(r, c);
+        if (maze.isWall(clicked)) return; // Ignore clicks on walls
 
         if (SwingUtilities.isLeftMouseButton(e)) {
             startCell = clicked; // Left click sets start cell
         } else if (SwingUtilities.isRightMouseButton(e)) {
             endCell = clicked;   // Right click sets end cell
         }
-        path.clear();       // Clear previous path
-        visitOrder.clear(); // Clear visited cells
-        repaint();          // Redraw with new start/end
+        resetMaze();         // Clear previous path and visited cells, redraw with new start/end
     }
 
     // Unused mouse events (required by MouseListener interface)
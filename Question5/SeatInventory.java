@@ -0,0 +1,251 @@
+package Question5;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Compact, thread-safe index of free seats for one event/venue.
+// - A bitset of 64-bit words (bit set = seat free) holds the availability of every seat,
+//   about 1 bit per seat, so many venues can be kept in memory at once.
+// - A segment tree over the words stores, per node, the free-run length at its left edge
+//   (prefix), at its right edge (suffix) and the longest free run inside it (best).
+//   That answers "first block of k adjacent free seats" in O(log n).
+// - A second segment tree of free counts (updated with atomic adds) answers
+//   "how many free seats between a and b" in O(log n).
+// Updates never take a lock. After changing a bit the writer recomputes the nodes on the path
+// to the root and re-checks the children it read; if another writer changed them meanwhile it
+// recomputes again, so the last writer always leaves the tree consistent. Readers may briefly
+// see a slightly stale summary, which is why results are candidates that callers confirm
+// with their own compare-and-set on the seat.
+class SeatInventory {
+    // Each run length is packed into 21 bits of a node word, which caps a venue at ~2M seats
+    static final int MAX_SEATS = (1 << 21) - 1;
+
+    private static final int FIELD_BITS = 21;
+    private static final long FIELD_MASK = (1L << FIELD_BITS) - 1;
+
+    private final int totalSeats;
+    private final AtomicLongArray freeBits;  // Bit (seat - 1) set = seat is free
+    private final int leafCount;             // Number of tree leaves (power of two >= words)
+    private final int leafShift;             // log2(leafCount)
+    private final AtomicLongArray runTree;   // Packed prefix/suffix/best per node, root at 1
+    private final AtomicIntegerArray countTree; // Free seats per node, root at 1
+
+    // Create an inventory where every seat starts free
+    public SeatInventory(int totalSeats) {
+        if (totalSeats < 1 || totalSeats > MAX_SEATS) {
+            throw new IllegalArgumentException("totalSeats must be between 1 and " + MAX_SEATS + ".");
+        }
+        this.totalSeats = totalSeats;
+        int words = (totalSeats + 63) >>> 6;
+        this.freeBits = new AtomicLongArray(words);
+        this.leafShift = 32 - Integer.numberOfLeadingZeros(Math.max(1, words - 1));
+        this.leafCount = 1 << leafShift;
+        this.runTree = new AtomicLongArray(2 * leafCount);
+        this.countTree = new AtomicIntegerArray(2 * leafCount);
+
+        for (int w = 0; w < words; w++) {
+            int seatsInWord = Math.min(64, totalSeats - (w << 6));
+            freeBits.set(w, seatsInWord == 64 ? -1L : (1L << seatsInWord) - 1);
+        }
+        rebuild();
+    }
+
+    // Bulk-mark every seat whose bit is set in takenBits as taken, in O(n / 64).
+    // Meant for recovery at startup; must not run concurrently with other updates.
+    public void markAllTaken(long[] takenBits) {
+        for (int w = 0; w < Math.min(takenBits.length, freeBits.length()); w++) {
+            freeBits.set(w, freeBits.get(w) & ~takenBits[w]);
+        }
+        rebuild();
+    }
+
+    // Single-threaded bulk build: summarize every word, then combine bottom-up
+    private void rebuild() {
+        for (int w = 0; w < freeBits.length(); w++) {
+            long bits = freeBits.get(w);
+            runTree.set(leafCount + w, summarize(bits));
+            countTree.set(leafCount + w, Long.bitCount(bits));
+        }
+        for (int node = leafCount - 1; node >= 1; node--) {
+            runTree.set(node, combine(runTree.get(2 * node), runTree.get(2 * node + 1), nodeLength(2 * node)));
+            countTree.set(node, countTree.get(2 * node) + countTree.get(2 * node + 1));
+        }
+    }
+
+    public int getTotalSeats() {
+        return totalSeats;
+    }
+
+    public boolean isFree(int seatNumber) {
+        int index = seatNumber - 1;
+        return (freeBits.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    // Mark a seat as no longer free. Returns false if it was already taken.
+    public boolean markTaken(int seatNumber) {
+        return update(seatNumber, false);
+    }
+
+    // Mark a seat as free again. Returns false if it was already free.
+    public boolean markFree(int seatNumber) {
+        return update(seatNumber, true);
+    }
+
+    // Total free seats, O(1)
+    public int countFree() {
+        return countTree.get(1);
+    }
+
+    // Free seats in the inclusive range [fromSeat, toSeat], O(log n)
+    public int countFree(int fromSeat, int toSeat) {
+        if (fromSeat > toSeat) return 0;
+        int from = fromSeat - 1, to = toSeat - 1;
+        int firstWord = from >>> 6, lastWord = to >>> 6;
+        if (firstWord == lastWord) {
+            return Long.bitCount(freeBits.get(firstWord) & rangeMask(from & 63, to & 63));
+        }
+        int count = Long.bitCount(freeBits.get(firstWord) & rangeMask(from & 63, 63))
+                  + Long.bitCount(freeBits.get(lastWord) & rangeMask(0, to & 63));
+        // Whole words strictly between the two edges, via the count tree
+        int lo = leafCount + firstWord + 1, hi = leafCount + lastWord - 1;
+        while (lo <= hi) {
+            if ((lo & 1) == 1) count += countTree.get(lo++);
+            if ((hi & 1) == 0) count += countTree.get(hi--);
+            lo >>>= 1;
+            hi >>>= 1;
+        }
+        return count;
+    }
+
+    // First seat of the lowest-numbered block of k adjacent free seats, or -1 if none exists.
+    // Walks down the run tree in O(log n); if a concurrent update makes the walk inconsistent
+    // it retries, and finally falls back to scanning the bitset.
+    public int findFirstRun(int k) {
+        if (k < 1 || k > totalSeats) return -1;
+        for (int attempt = 0; attempt < 3; attempt++) {
+            if (best(runTree.get(1)) < k) return -1;
+            int seat = descend(k);
+            if (seat > 0) return seat;
+        }
+        return scanForRun(k);
+    }
+
+    private int descend(int k) {
+        int node = 1;
+        while (node < leafCount) {
+            long left = runTree.get(2 * node), right = runTree.get(2 * node + 1);
+            if (best(left) >= k) {
+                node = 2 * node;
+            } else if (suffix(left) + prefix(right) >= k) {
+                // Run straddles the two children: starts suffix(left) seats before the midpoint
+                int midSeat = nodeStart(2 * node + 1) + 1;
+                return midSeat - suffix(left);
+            } else if (best(right) >= k) {
+                node = 2 * node + 1;
+            } else {
+                return -1; // Tree changed under us
+            }
+        }
+        int w = node - leafCount;
+        int bit = firstRunInWord(freeBits.get(w), k);
+        return bit < 0 ? -1 : (w << 6) + bit + 1;
+    }
+
+    // Linear fallback used only when the tree keeps changing during a search
+    private int scanForRun(int k) {
+        int run = 0;
+        for (int seat = 1; seat <= totalSeats; seat++) {
+            run = isFree(seat) ? run + 1 : 0;
+            if (run == k) return seat - k + 1;
+        }
+        return -1;
+    }
+
+    // Flip one bit with CAS, then bring both trees up to date along the leaf-to-root path
+    private boolean update(int seatNumber, boolean free) {
+        int index = seatNumber - 1;
+        int w = index >>> 6;
+        long mask = 1L << index;
+        while (true) {
+            long word = freeBits.get(w);
+            if (((word & mask) != 0) == free) return false; // Already in the requested state
+            long next = free ? word | mask : word & ~mask;
+            if (freeBits.compareAndSet(w, word, next)) break;
+        }
+
+        int leaf = leafCount + w;
+        for (int node = leaf; node >= 1; node >>>= 1) countTree.getAndAdd(node, free ? 1 : -1);
+
+        while (true) { // Refresh the leaf until the word is stable under our summary
+            long word = freeBits.get(w);
+            runTree.set(leaf, summarize(word));
+            if (freeBits.get(w) == word) break;
+        }
+        for (int node = leaf >>> 1; node >= 1; node >>>= 1) {
+            int childLength = nodeLength(2 * node);
+            while (true) { // Recompute until the children did not move underneath us
+                long left = runTree.get(2 * node), right = runTree.get(2 * node + 1);
+                runTree.set(node, combine(left, right, childLength));
+                if (runTree.get(2 * node) == left && runTree.get(2 * node + 1) == right) break;
+            }
+        }
+        return true;
+    }
+
+    // Seats covered by a node (every node at the same depth covers the same length)
+    private int nodeLength(int node) {
+        int depth = 31 - Integer.numberOfLeadingZeros(node);
+        return 64 << (leafShift - depth);
+    }
+
+    // Zero-based index of the first seat covered by a node
+    private int nodeStart(int node) {
+        int depth = 31 - Integer.numberOfLeadingZeros(node);
+        return (node - (1 << depth)) * nodeLength(node);
+    }
+
+    // Summarize one 64-seat word: low bits are the lower seat numbers
+    private static long summarize(long bits) {
+        int prefix = Long.numberOfTrailingZeros(~bits);
+        int suffix = Long.numberOfLeadingZeros(~bits);
+        int best = 0;
+        for (long x = bits; x != 0; x &= x << 1) best++; // Each step shortens every run by one
+        return pack(prefix, suffix, best);
+    }
+
+    private static long combine(long left, long right, int childLength) {
+        int prefix = prefix(left) == childLength ? childLength + prefix(right) : prefix(left);
+        int suffix = suffix(right) == childLength ? childLength + suffix(left) : suffix(right);
+        int best = Math.max(Math.max(best(left), best(right)), suffix(left) + prefix(right));
+        return pack(prefix, suffix, best);
+    }
+
+    // Bit index of the first run of k set bits inside a word, or -1
+    private static int firstRunInWord(long bits, int k) {
+        if (k > 64) return -1;
+        long starts = bits;
+        for (int i = 1; i < k && starts != 0; i++) starts &= bits >>> i; // Bit j survives if j..j+i all set
+        return starts == 0 ? -1 : Long.numberOfTrailingZeros(starts);
+    }
+
+    private static long rangeMask(int fromBit, int toBit) {
+        long upTo = toBit == 63 ? -1L : (1L << (toBit + 1)) - 1;
+        return upTo & (-1L << fromBit);
+    }
+
+    private static long pack(int prefix, int suffix, int best) {
+        return prefix | ((long) suffix << FIELD_BITS) | ((long) best << (2 * FIELD_BITS));
+    }
+
+    private static int prefix(long node) {
+        return (int) (node & FIELD_MASK);
+    }
+
+    private static int suffix(long node) {
+        return (int) ((node >>> FIELD_BITS) & FIELD_MASK);
+    }
+
+    private static int best(long node) {
+        return (int) ((node >>> (2 * FIELD_BITS)) & FIELD_MASK);
+    }
+}
@@ -1,117 +1,674 @@
 package Question5;
 
+import common.EventLog;
+import common.LatencyHistogram;
+
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
 
-// Represents a booking request from a user for a specific seat
+// Represents a booking request from a user for a specific seat, an explicit group of seats,
+// or the best available block of adjacent seats. Group requests are all-or-nothing.
 class BookingRequest {
     String userId;      // Identifier of the user making the booking
-    int seatNumber;     // Seat number requested
+    int seatNumber;     // Seat number requested (first seat of a group)
+    int[] seatNumbers;  // All seats of a group booking, null for single-seat requests
+    int groupSize;      // Adjacent seats wanted by a best-available request, 0 otherwise
+    String admissionKey; // Duplicate-detection key, set by BookingAdmission while queued
+    long enqueuedNanos;  // When the request entered the system (System.nanoTime), for latency
 
     public BookingRequest(String userId, int seatNumber) {
         this.userId = userId;
         this.seatNumber = seatNumber;
     }
+
+    public BookingRequest(String userId, int[] seatNumbers) {
+        if (seatNumbers.length == 0) {
+            throw new IllegalArgumentException("A group booking needs at least one seat.");
+        }
+        this.userId = userId;
+        this.seatNumber = seatNumbers[0];
+        this.seatNumbers = seatNumbers.clone();
+        this.groupSize = seatNumbers.length;
+    }
+
+    // Request for the best available block of groupSize adjacent seats.
+    // The chosen seats are filled into seatNumbers once the booking succeeds.
+    static BookingRequest bestAvailable(String userId, int groupSize) {
+        if (groupSize < 1) {
+            throw new IllegalArgumentException("groupSize must be at least 1.");
+        }
+        BookingRequest request = new BookingRequest(userId, 0);
+        request.groupSize = groupSize;
+        return request;
+    }
+
+    boolean isGroup() {
+        return groupSize > 0;
+    }
+
+    // Append "Seat 7" or "Seats 7, 8, 9" (or the requested block size if not yet assigned)
+    void describeSeats(StringBuilder sb) {
+        if (!isGroup()) {
+            sb.append("Seat ").append(seatNumber);
+        } else if (seatNumbers == null) {
+            sb.append(groupSize).append(" adjacent seats");
+        } else {
+            sb.append("Seats ");
+            for (int i = 0; i < seatNumbers.length; i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(seatNumbers[i]);
+            }
+        }
+    }
 }
 
-// SeatManager handles seat booking with concurrency control using two locking strategies:
+// Locking strategy used by BookingProcessor when booking a seat
+enum LockingMode {
+    PESSIMISTIC("Pessimistic"),
+    OPTIMISTIC("Optimistic"),
+    LOCK_FREE("Lock-Free");
+
+    final String label; // Name shown in the GUI
+
+    LockingMode(String label) {
+        this.label = label;
+    }
+
+    // Cycle to the next mode (used by the toggle button)
+    LockingMode next() {
+        LockingMode[] modes = values();
+        return modes[(ordinal() + 1) % modes.length];
+    }
+}
+
+// Counters describing how bookings went, shared by all worker threads.
+// LongAdder keeps the hot path free of a single contended counter.
+class BookingStats {
+    final LongAdder booked = new LongAdder();    // Successful bookings
+    final LongAdder rejected = new LongAdder();  // Seat was already taken (or retries ran out)
+    final LongAdder conflicts = new LongAdder(); // Optimistic commits that failed validation
+    final LongAdder retries = new LongAdder();   // Optimistic attempts repeated after a conflict
+    final LongAdder holdsPlaced = new LongAdder();    // Timed checkout holds taken
+    final LongAdder holdsConfirmed = new LongAdder(); // Holds turned into bookings
+    final LongAdder holdsExpired = new LongAdder();   // Holds released by the timer
+
+    // One-line summary for the GUI and logs
+    String summary() {
+        return "Booked: " + booked.sum() + " | Rejected: " + rejected.sum() +
+            " | Conflicts: " + conflicts.sum() + " | Retries: " + retries.sum() +
+            " | Holds: " + holdsPlaced.sum() + " (confirmed " + holdsConfirmed.sum() +
+            ", expired " + holdsExpired.sum() + ")";
+    }
+}
+
+// SeatManager handles seat booking with concurrency control using three locking strategies:
 // 1. Pessimistic Locking: Synchronizes on a shared lock to ensure exclusive access.
-// 2. Optimistic Locking: Checks state first, then synchronizes only if likely to succeed.
-// The seats map stores seat availability (true = booked, false = available).
+// 2. Optimistic Locking: Reads a versioned seat word without locking, then commits with a
+//    compare-and-set that only succeeds if nobody changed the seat in between (retrying a
+//    bounded number of times with backoff when validation fails).
+// 3. Lock-Free: Moves a single seat AVAILABLE -> HELD -> BOOKED with compare-and-set,
+//    so bookings for different seats never contend on a shared monitor.
+// Each seat is one long in an AtomicLongArray (index = seatNumber - 1) packing a version counter
+// with the seat state. Every state change bumps the version, so an optimistic reader can tell
+// that a seat changed even if it ended up back in the same state (no ABA).
+// A SeatInventory mirrors which seats are AVAILABLE as a bitset with summary trees, so free
+// counts and contiguous-block searches are O(log n) instead of a scan over every seat.
 class SeatManager {
-    Map<Integer, Boolean> seats = new ConcurrentHashMap<>();
+    static final int AVAILABLE = 0; // Seat can be booked
+    static final int HELD = 1;      // Seat is reserved by an in-flight lock-free booking
+    static final int BOOKED = 2;    // Seat is sold
+
+    static final int MAX_OPTIMISTIC_RETRIES = 8; // Give up after this many failed validations
+
+    private static final int STATE_BITS = 2;
+    private static final long STATE_MASK = (1L << STATE_BITS) - 1;
+
+    private final AtomicLongArray seatWords; // (version << STATE_BITS) | state for each seat
+    private final SeatInventory inventory;   // Availability index, updated after every transition
+    private final BookingStats stats = new BookingStats();
+    private final TimingWheel.ExpiryHandler expiryHandler = this::expireHold; // Reused for every hold
+    private volatile TimingWheel holdTimer;  // Expires timed holds, null = timed holds disabled
+    private volatile IntConsumer seatChangeListener; // Told about changes made by the timer
+    private volatile BookingJournal journal; // Records confirmed holds, null = in-memory only
     final Object lock = new Object(); // Lock object used for synchronization
 
-    // Initialize all seats as available (false)
+    // Initialize all seats as available at version 0 (AtomicLongArray starts zeroed)
     public SeatManager(int totalSeats) {
-        for (int i = 1; i <= totalSeats; i++) seats.put(i, false);
+        seatWords = new AtomicLongArray(totalSeats);
+        inventory = new SeatInventory(totalSeats);
+    }
+
+    // Book a seat using the given locking strategy. Seat numbers outside 1..totalSeats fail.
+    // The only way in to the three strategies below, which assume a valid seat number.
+    public boolean bookSeat(int seatNumber, LockingMode mode) {
+        if (!isValidSeat(seatNumber)) {
+            stats.rejected.increment();
+            return false;
+        }
+        boolean success;
+        switch (mode) {
+            case PESSIMISTIC: success = bookSeatPessimistic(seatNumber); break;
+            case OPTIMISTIC:  return bookSeatOptimistic(seatNumber); // Records its own stats
+            default:          success = bookSeatLockFree(seatNumber); break;
+        }
+        (success ? stats.booked : stats.rejected).increment();
+        return success;
+    }
+
+    // Commit a batch of requests together, writing each outcome into results.
+    // In pessimistic mode the single-seat requests of the batch share one lock acquisition;
+    // group requests always use the lock-free ordered acquisition in bookGroup.
+    public void bookBatch(java.util.List<BookingRequest> batch, LockingMode mode, boolean[] results) {
+        if (mode == LockingMode.PESSIMISTIC) {
+            int booked = 0, singles = 0;
+            synchronized (lock) {
+                for (int i = 0; i < batch.size(); i++) {
+                    BookingRequest request = batch.get(i);
+                    if (request.isGroup()) continue;
+                    singles++;
+                    results[i] = isValidSeat(request.seatNumber) && transition(request.seatNumber, AVAILABLE, BOOKED);
+                    if (results[i]) booked++;
+                }
+            }
+            stats.booked.add(booked);
+            stats.rejected.add(singles - booked);
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            BookingRequest request = batch.get(i);
+            if (request.isGroup()) {
+                results[i] = bookGroup(request);
+            } else if (mode != LockingMode.PESSIMISTIC) {
+                results[i] = bookSeat(request.seatNumber, mode);
+            }
+        }
+    }
+
+    // Book a group request: explicit seats via bookSeats, otherwise the best available block.
+    // On success for a best-available request the chosen seats are written back into it.
+    public boolean bookGroup(BookingRequest request) {
+        boolean success;
+        if (request.seatNumbers != null) {
+            success = bookSeats(request.seatNumbers);
+        } else {
+            int first = bookBestAvailable(request.groupSize);
+            success = first > 0;
+            if (success) {
+                request.seatNumber = first;
+                request.seatNumbers = new int[request.groupSize];
+                for (int i = 0; i < request.groupSize; i++) request.seatNumbers[i] = first + i;
+            }
+        }
+        (success ? stats.booked : stats.rejected).increment();
+        return success;
+    }
+
+    // All-or-nothing group booking without a global lock.
+    // Seats are held in ascending seat order (a canonical order shared by every caller) and
+    // holds never block: if any seat is taken, the seats already held are released and the
+    // group fails. Two groups can therefore never wait on each other, so there is no deadlock,
+    // and no seat is ever left half-booked.
+    public boolean bookSeats(int[] seatNumbers) {
+        int[] ordered = seatNumbers.clone();
+        java.util.Arrays.sort(ordered);
+        if (!isValidSeat(ordered[0]) || !isValidSeat(ordered[ordered.length - 1])) return false;
+        int held = 0;
+        for (; held < ordered.length; held++) {
+            if (held > 0 && ordered[held] == ordered[held - 1]) break; // Same seat listed twice
+            if (!holdSeat(ordered[held])) break;
+        }
+        if (held < ordered.length) {
+            for (int i = held - 1; i >= 0; i--) releaseHold(ordered[i]); // Roll back in reverse order
+            return false;
+        }
+        for (int seat : ordered) confirmHold(seat); // Only we can move our HELD seats, cannot fail
+        return true;
+    }
+
+    // First seat of the best available block of count adjacent seats, or -1 if there is none.
+    // Seats are numbered from the front, so the best block is the lowest-numbered one.
+    // Answered by the inventory's run tree in O(log n); callers still book with CAS.
+    public int findBestContiguousBlock(int count) {
+        return inventory.findFirstRun(count);
+    }
+
+    // Find and book the best available block of count adjacent seats, retrying with the next
+    // candidate if another thread grabs part of it first. Returns the first seat or -1.
+    public int bookBestAvailable(int count) {
+        while (true) {
+            int first = findBestContiguousBlock(count);
+            if (first < 0) return -1;
+            int[] block = new int[count];
+            for (int i = 0; i < count; i++) block[i] = first + i;
+            if (bookSeats(block)) return first;
+        }
     }
 
     // Pessimistic locking: lock before checking and updating seat status.
     // Guarantees no race conditions but reduces concurrency.
-    public boolean bookSeatPessimistic(int seatNumber) {
+    private boolean bookSeatPessimistic(int seatNumber) {
         synchronized (lock) {
-            if (!seats.get(seatNumber)) {  // Seat is available
-                seats.put(seatNumber, true); // Book seat
-                return true;                 // Success
-            }
-            return false;                   // Already booked
-        }
-    }
-
-    // Optimistic locking approach:
-    // 1. Check if seat is available without locking.
-    // 2. Simulate a chance of conflict (20%).
-    // 3. If no conflict, synchronize and verify availability again.
-    // This approach increases concurrency but can fail more often.
-    public boolean bookSeatOptimistic(int seatNumber) {
-        if (!seats.get(seatNumber)) { // Initial check without lock
-            if (Math.random() > 0.2) { // Simulated conflict probability
-                synchronized (lock) {  // Lock to ensure atomic update
-                    if (!seats.get(seatNumber)) {
-                        seats.put(seatNumber, true);
-                        return true;
-                    }
-                }
+            // Still a CAS so lock-free and optimistic bookings running concurrently are respected
+            return transition(seatNumber, AVAILABLE, BOOKED);
+        }
+    }
+
+    // Optimistic concurrency with per-seat versions:
+    // 1. Read the seat word (state + version) without locking.
+    // 2. Validate the seat is available.
+    // 3. Commit with a CAS against the exact word that was read; if another thread changed
+    //    the seat in the meantime the CAS fails, which is counted as a real conflict.
+    // Conflicts are retried up to MAX_OPTIMISTIC_RETRIES times with exponential backoff.
+    private boolean bookSeatOptimistic(int seatNumber) {
+        int index = seatNumber - 1;
+        for (int attempt = 0; ; attempt++) {
+            long observed = seatWords.get(index);           // Read phase
+            if (stateOf(observed) != AVAILABLE) {           // Validate phase
+                stats.rejected.increment();
+                return false;
+            }
+            if (seatWords.compareAndSet(index, observed, nextWord(observed, BOOKED))) { // Commit phase
+                syncInventory(seatNumber);
+                stats.booked.increment();
+                return true;
+            }
+            stats.conflicts.increment();                    // Seat changed since we read it
+            if (attempt == MAX_OPTIMISTIC_RETRIES) {
+                stats.rejected.increment();
+                return false;
+            }
+            stats.retries.increment();
+            backoff(attempt);
+        }
+    }
+
+    // Lock-free booking: hold the seat with a CAS, then confirm it.
+    // Only threads racing for the same seat ever see each other.
+    private boolean bookSeatLockFree(int seatNumber) {
+        return holdSeat(seatNumber) && confirmHold(seatNumber);
+    }
+
+    // AVAILABLE -> HELD. Exactly one caller wins the seat; everyone else fails immediately.
+    // The untimed, untokened holds below are only for bookings in progress inside this class;
+    // customer checkouts go through placeHold and its token.
+    private boolean holdSeat(int seatNumber) {
+        return transition(seatNumber, AVAILABLE, HELD);
+    }
+
+    // HELD -> BOOKED. Called by the thread that won holdSeat.
+    private boolean confirmHold(int seatNumber) {
+        return transition(seatNumber, HELD, BOOKED);
+    }
+
+    // HELD -> AVAILABLE. Rolls back a hold taken by holdSeat.
+    private boolean releaseHold(int seatNumber) {
+        return transition(seatNumber, HELD, AVAILABLE);
+    }
+
+    // Timed checkout hold: AVAILABLE -> HELD, released automatically after ttlMillis unless
+    // confirmed first. Returns a hold token for confirmHold/releaseHold, or -1 if the seat does
+    // not exist or is not available. The token is the seat's version while held, so a stale token
+    // (the hold already expired, or the seat was re-held by someone else) can never touch the seat.
+    public long placeHold(int seatNumber, long ttlMillis) {
+        TimingWheel timer = holdTimer;
+        if (timer == null) {
+            throw new IllegalStateException("Timed holds need a TimingWheel; call setHoldTimer first.");
+        }
+        if (!isValidSeat(seatNumber)) return -1;
+        int index = seatNumber - 1;
+        while (true) {
+            long word = seatWords.get(index);
+            if (stateOf(word) != AVAILABLE) return -1;
+            long held = nextWord(word, HELD);
+            if (seatWords.compareAndSet(index, word, held)) {
+                syncInventory(seatNumber);
+                stats.holdsPlaced.increment();
+                timer.schedule(expiryHandler, seatNumber, versionOf(held), ttlMillis);
+                return versionOf(held);
+            }
+        }
+    }
+
+    // HELD -> BOOKED for the hold identified by token. With a journal, room for the booking
+    // record is reserved before the seat changes (a full journal fails the confirmation and
+    // leaves the hold in place), and the record is forced to disk before this returns true,
+    // so a confirmed checkout survives a restart just like a processed booking.
+    public boolean confirmHold(int seatNumber, long token, String userId) {
+        BookingJournal journal = this.journal;
+        byte[] user = null;
+        long from = 0, limit = 0;
+        if (journal != null) {
+            user = userId.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+            limit = BookingJournal.recordBytes(user);
+            from = journal.reserve(limit);
+            if (from < 0) return false;
+            limit += from;
+        }
+        if (!endHold(seatNumber, token, BOOKED)) return false; // Expired or stale: reservation stays padding
+        if (journal != null) {
+            journal.write(from, limit, user, seatNumber, System.currentTimeMillis(), BookingJournal.OUTCOME_BOOKED);
+            journal.force(from, limit);
+        }
+        stats.holdsConfirmed.increment();
+        stats.booked.increment();
+        return true;
+    }
+
+    // HELD -> AVAILABLE for the hold identified by token (checkout abandoned)
+    public boolean releaseHold(int seatNumber, long token) {
+        return endHold(seatNumber, token, AVAILABLE);
+    }
+
+    // Called on the timer thread; a no-op if the hold was already confirmed or released
+    private void expireHold(int seatNumber, long token) {
+        if (!endHold(seatNumber, token, AVAILABLE)) return;
+        stats.holdsExpired.increment();
+        IntConsumer listener = seatChangeListener;
+        if (listener != null) listener.accept(seatNumber);
+    }
+
+    // Single CAS against the exact held word, so only the matching hold can end it
+    private boolean endHold(int seatNumber, long token, int to) {
+        if (!isValidSeat(seatNumber)) return false;
+        long heldWord = (token << STATE_BITS) | HELD;
+        if (!seatWords.compareAndSet(seatNumber - 1, heldWord, nextWord(heldWord, to))) return false;
+        if (to == AVAILABLE) syncInventory(seatNumber);
+        return true;
+    }
+
+    public void setHoldTimer(TimingWheel holdTimer) {
+        this.holdTimer = holdTimer;
+    }
+
+    public void setSeatChangeListener(IntConsumer seatChangeListener) {
+        this.seatChangeListener = seatChangeListener;
+    }
+
+    // Journal for bookings made outside BookingProcessor (confirmed holds)
+    public void setJournal(BookingJournal journal) {
+        this.journal = journal;
+    }
+
+    // Current state of a seat (AVAILABLE, HELD or BOOKED)
+    public int getSeatState(int seatNumber) {
+        return stateOf(seatWords.get(checkedIndex(seatNumber)));
+    }
+
+    // Number of times the seat has changed state
+    public long getSeatVersion(int seatNumber) {
+        return versionOf(seatWords.get(checkedIndex(seatNumber)));
+    }
+
+    // False for seats that do not exist, like a failed bookSeat
+    public boolean isBooked(int seatNumber) {
+        return isValidSeat(seatNumber) && getSeatState(seatNumber) == BOOKED;
+    }
+
+    private int checkedIndex(int seatNumber) {
+        if (!isValidSeat(seatNumber)) {
+            throw new IllegalArgumentException("No seat " + seatNumber + " (seats are 1.." + getTotalSeats() + ").");
+        }
+        return seatNumber - 1;
+    }
+
+    public int getTotalSeats() {
+        return seatWords.length();
+    }
+
+    // True if the venue has a seat with this number
+    public boolean isValidSeat(int seatNumber) {
+        return seatNumber >= 1 && seatNumber <= getTotalSeats();
+    }
+
+    // Bitset of BOOKED seats (bit seatNumber - 1), used for journal snapshots
+    public long[] bookedBitmap() {
+        long[] bits = new long[(getTotalSeats() + 63) / 64];
+        for (int seat = 1; seat <= getTotalSeats(); seat++) {
+            if (isBooked(seat)) bits[(seat - 1) >>> 6] |= 1L << (seat - 1);
+        }
+        return bits;
+    }
+
+    // Restore sold seats from a journal's snapshot and records. Call before any booking starts.
+    // Replay only sets bits in a local bitset; seat words and the inventory are then updated
+    // in one bulk pass, which keeps recovery of a million-seat venue well under a second.
+    public void restore(BookingJournal journal) throws java.io.IOException {
+        int totalSeats = getTotalSeats();
+        long[] booked = new long[(totalSeats + 63) / 64];
+        long[] snapshot = journal.readSnapshot();
+        if (snapshot != null) System.arraycopy(snapshot, 0, booked, 0, Math.min(snapshot.length, booked.length));
+        journal.replay((seatNumber, timestamp, outcome) -> {
+            if (outcome == BookingJournal.OUTCOME_BOOKED && seatNumber >= 1 && seatNumber <= totalSeats) {
+                booked[(seatNumber - 1) >>> 6] |= 1L << (seatNumber - 1);
+            }
+        });
+        for (int word = 0; word < booked.length; word++) {
+            for (long bits = booked[word]; bits != 0; bits &= bits - 1) {
+                int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+                seatWords.set(index, nextWord(seatWords.get(index), BOOKED));
             }
         }
-        return false; // Booking failed due to conflict or already booked
+        inventory.markAllTaken(booked);
     }
 
-    // Getter for current seat booking status map
+    // Seats currently AVAILABLE (held and booked seats are not counted)
+    public int getAvailableCount() {
+        return inventory.countFree();
+    }
+
+    public SeatInventory getInventory() {
+        return inventory;
+    }
+
+    public BookingStats getStats() {
+        return stats;
+    }
+
+    // Snapshot of seat booking status (true = booked, false = available or held).
+    // Boxes every seat, so prefer getSeatState/isBooked for large venues.
     public Map<Integer, Boolean> getSeats() {
-        return seats;
+        Map<Integer, Boolean> snapshot = new TreeMap<>();
+        for (int i = 1; i <= getTotalSeats(); i++) snapshot.put(i, isBooked(i));
+        return snapshot;
+    }
+
+    // Move a seat from one state to another, bumping its version.
+    // Retries only while the seat is still in the expected state (its version moved underneath us).
+    private boolean transition(int seatNumber, int from, int to) {
+        int index = seatNumber - 1;
+        while (true) {
+            long word = seatWords.get(index);
+            if (stateOf(word) != from) return false;
+            if (seatWords.compareAndSet(index, word, nextWord(word, to))) break;
+        }
+        if (from == AVAILABLE || to == AVAILABLE) syncInventory(seatNumber);
+        return true;
+    }
+
+    // Copy a seat's availability into the inventory. Re-checks the seat word afterwards and
+    // repeats if it moved, so a slow thread can never leave a stale bit behind a newer change.
+    private void syncInventory(int seatNumber) {
+        int index = seatNumber - 1;
+        while (true) {
+            long word = seatWords.get(index);
+            if (stateOf(word) == AVAILABLE) inventory.markFree(seatNumber);
+            else inventory.markTaken(seatNumber);
+            if (seatWords.get(index) == word) return;
+        }
+    }
+
+    // Spin briefly for the first few conflicts, then park with jitter so retries spread out
+    private static void backoff(int attempt) {
+        if (attempt < 3) {
+            for (int i = 0; i < (1 << attempt); i++) Thread.onSpinWait();
+        } else {
+            long maxNanos = Math.min(1_000L << attempt, 1_000_000L); // Capped at 1ms
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(maxNanos / 2, maxNanos));
+        }
+    }
+
+    private static int stateOf(long word) {
+        return (int) (word & STATE_MASK);
     }
+
+    private static long versionOf(long word) {
+        return word >>> STATE_BITS;
+    }
+
+    private static long nextWord(long word, int state) {
+        return ((versionOf(word) + 1) << STATE_BITS) | state;
+    }
+}
+
+// Receives the outcome of every committed batch. Called on worker threads.
+interface BookingListener {
+    void onBatchCommitted(java.util.List<BookingRequest> batch, boolean[] results);
 }
 
-// BookingProcessor runs in a separate thread to process booking requests
-// It dequeues requests, attempts to book seats using chosen locking strategy,
-// and updates the GUI with results asynchronously using SwingUtilities.
+// BookingProcessor is the unit of work run by BookingEngine workers.
+// It drains requests from the queue in batches of up to batchSize, commits each batch
+// through SeatManager.bookBatch using the chosen locking strategy, and hands the results
+// to a BookingListener (the GUI publisher, or a recorder in headless runs).
+// Several processors can drain the same queue concurrently.
 class BookingProcessor implements Runnable {
+    // Simulated commit latency, paid once per batch. The original demo slept 200ms per request;
+    // batching deliberately amortizes it like a group commit, so a full batch of
+    // DEFAULT_BATCH_SIZE costs 200ms rather than 32 x 200ms. -Dbooking.delayMillis restores any
+    // pacing wanted for the demo; the load test runs with no delay.
+    static final long DEFAULT_DELAY_MILLIS = 200;
+    static final int DEFAULT_BATCH_SIZE = 32;     // Requests committed together
+
     BlockingQueue<BookingRequest> queue; // Queue of booking requests to process
     SeatManager manager;                 // SeatManager to book seats
-    boolean useOptimistic;               // Flag to choose locking strategy
-    JTextArea logArea;                  // GUI component to log booking results
-    Runnable updateDisplay;             // Runnable to refresh seat display in GUI
+    LockingMode mode;                    // Locking strategy used to book seats
+    BookingListener listener;            // Notified after each batch is committed
+    int batchSize;                       // Max requests drained per batch
+    long delayMillis;                    // Delay after each batch, 0 disables it
+    BookingJournal journal;              // Optional write-ahead journal, null = in-memory only
+    BookingAdmission admission;          // Optional admission stage to notify when requests finish
 
     public BookingProcessor(
         BlockingQueue<BookingRequest> queue,
         SeatManager manager,
-        boolean useOptimistic,
-        JTextArea logArea,
-        Runnable updateDisplay
+        LockingMode mode,
+        BookingListener listener
     ) {
+        this(queue, manager, mode, listener, DEFAULT_BATCH_SIZE, DEFAULT_DELAY_MILLIS);
+    }
+
+    public BookingProcessor(
+        BlockingQueue<BookingRequest> queue,
+        SeatManager manager,
+        LockingMode mode,
+        BookingListener listener,
+        int batchSize,
+        long delayMillis
+    ) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1.");
+        }
         this.queue = queue;
         this.manager = manager;
-        this.useOptimistic = useOptimistic;
-        this.logArea = logArea;
-        this.updateDisplay = updateDisplay;
+        this.mode = mode;
+        this.listener = listener;
+        this.batchSize = batchSize;
+        this.delayMillis = delayMillis;
+    }
+
+    // Journal every committed batch before reporting it
+    BookingProcessor journalTo(BookingJournal journal) {
+        this.journal = journal;
+        return this;
+    }
+
+    // Write one record per seat of the batch into its reserved region [from, limit), then
+    // group-commit them with a single force. A best-available request that found no block has
+    // no seats and writes nothing.
+    private void journalBatch(java.util.List<BookingRequest> batch, boolean[] results,
+                              byte[][] users, long from, long limit) {
+        long at = from;
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < batch.size(); i++) {
+            BookingRequest request = batch.get(i);
+            byte outcome = results[i] ? BookingJournal.OUTCOME_BOOKED : BookingJournal.OUTCOME_REJECTED;
+            if (!request.isGroup()) {
+                at = journal.write(at, limit, users[i], request.seatNumber, now, outcome);
+            } else if (request.seatNumbers != null) {
+                for (int seat : request.seatNumbers) at = journal.write(at, limit, users[i], seat, now, outcome);
+            }
+        }
+        journal.force(from, limit);
+    }
+
+    // Tell the admission stage when each request is finished, so duplicates can be re-admitted
+    BookingProcessor admittedBy(BookingAdmission admission) {
+        this.admission = admission;
+        return this;
     }
 
     public void run() {
-        // Process requests until queue is empty
-        while (!queue.isEmpty()) {
+        // Process batches until queue is empty. drainTo() never blocks, so a worker that loses
+        // the race for the last requests simply exits instead of hanging in take().
+        java.util.List<BookingRequest> batch = new java.util.ArrayList<>(batchSize);
+        while (!Thread.currentThread().isInterrupted() && drainBatch(batch) > 0) {
+            processBatch(batch);
+            batch.clear();
+        }
+    }
+
+    // Move up to batchSize waiting requests into the given list, returning how many were taken
+    int drainBatch(java.util.List<BookingRequest> batch) {
+        return queue.drainTo(batch, batchSize);
+    }
+
+    // Book a batch of requests and report the outcomes together. With a journal, space for every
+    // record the batch could write is reserved first; if the journal is full the batch is
+    // rejected before any seat changes, so memory never runs ahead of what a restart would restore.
+    void processBatch(java.util.List<BookingRequest> batch) {
+        boolean[] results = new boolean[batch.size()];
+        try {
+            byte[][] users = null;
+            long from = 0, limit = 0;
+            if (journal != null) {
+                users = new byte[batch.size()][];
+                long bytes = 0;
+                for (int i = 0; i < batch.size(); i++) {
+                    BookingRequest request = batch.get(i);
+                    users[i] = request.userId.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+                    bytes += (long) BookingJournal.recordBytes(users[i]) * Math.max(1, request.groupSize);
+                }
+                from = journal.reserve(bytes);
+                limit = from + bytes;
+            }
+            if (from < 0) {
+                manager.getStats().rejected.add(batch.size()); // Journal full: nothing is booked
+            } else {
+                manager.bookBatch(batch, mode, results); // Attempt bookings using the selected locking method
+                if (journal != null) journalBatch(batch, results, users, from, limit); // Durable before anyone is told
+            }
+            listener.onBatchCommitted(batch, results);
+        } finally {
+            if (admission != null) {
+                for (BookingRequest request : batch) admission.complete(request);
+            }
+        }
+
+        if (delayMillis > 0) {
             try {
-                BookingRequest request = queue.take(); // Take request from queue
-                
-                // Attempt booking using the selected locking method
-                boolean success = useOptimistic
-                    ? manager.bookSeatOptimistic(request.seatNumber)
-                    : manager.bookSeatPessimistic(request.seatNumber);
-
-                // Prepare log message about booking result
-                String msg = "User " + request.userId + " tried Seat " + request.seatNumber +
-                    " → " + (success ? "✅ Booked" : "❌ Failed") + "\n";
-
-                // Update GUI components on Event Dispatch Thread (EDT)
-                SwingUtilities.invokeLater(() -> {
-                    logArea.append(msg);       // Append booking result to log
-                    updateDisplay.run();       // Refresh seat availability display
-                });
-
-                Thread.sleep(200); // Simulate processing delay for realism
+                Thread.sleep(delayMillis); // Simulate commit latency for realism
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt(); // Proper thread interruption handling
             }
@@ -119,58 +676,609 @@ class BookingProcessor implements Runnable {
     }
 }
 
+// BookingUiPublisher collects batch results from worker threads and publishes them to Swing
+// at most once per frame interval. Workers only append pre-built log text to a lock-free queue
+// and set bits in a dirty-seat bitset; a Swing Timer on the EDT then appends all pending log text
+// in one call and rewrites only the lines of seats that changed.
+class BookingUiPublisher implements BookingListener {
+    // One log line per request, formatted on the event log's consumer thread
+    static final EventLog.Template BOOKING_RESULT = (out, request, _, booked, _) -> {
+        out.append("User ").append(((BookingRequest) request).userId).append(" tried ");
+        ((BookingRequest) request).describeSeats(out);
+        out.append(" → ").append(booked != 0 ? "✅ Booked" : "❌ Failed").append('\n');
+    };
+
+    private final SeatManager manager;
+    private final JTextArea statusArea;   // One line per seat, line index = seatNumber - 1
+    private final EventLog eventLog;      // Batches log lines to the log area off the workers' threads
+    private final JLabel statsLabel;
+    private final AtomicLongArray dirtySeats; // Bit (seatNumber - 1) set = line needs redraw
+    private final AtomicBoolean dirty = new AtomicBoolean(); // Anything to publish at all?
+    private final javax.swing.Timer frameTimer;
+
+    public BookingUiPublisher(SeatManager manager, JTextArea statusArea, EventLog eventLog,
+                              JLabel statsLabel, int framesPerSecond) {
+        this.manager = manager;
+        this.statusArea = statusArea;
+        this.eventLog = eventLog;
+        this.statsLabel = statsLabel;
+        this.dirtySeats = new AtomicLongArray((manager.getTotalSeats() + 63) / 64);
+        this.frameTimer = new javax.swing.Timer(Math.max(1, 1000 / framesPerSecond), _ -> flush());
+        frameTimer.setCoalesce(true); // Drop ticks the EDT could not keep up with
+    }
+
+    public void start() {
+        frameTimer.start();
+    }
+
+    public void stop() {
+        frameTimer.stop();
+    }
+
+    @Override
+    public void onBatchCommitted(java.util.List<BookingRequest> batch, boolean[] results) {
+        for (int i = 0; i < batch.size(); i++) {
+            BookingRequest request = batch.get(i);
+            eventLog.publish(BOOKING_RESULT, request, null, results[i] ? 1 : 0, 0);
+            if (!results[i]) continue;
+            if (request.seatNumbers == null) {
+                markDirty(request.seatNumber);
+            } else {
+                for (int seat : request.seatNumbers) markDirty(seat);
+            }
+        }
+        dirty.set(true);
+    }
+
+    // Redraw one seat on the next frame (used for changes made outside a batch, e.g. hold expiry)
+    public void seatChanged(int seatNumber) {
+        markDirty(seatNumber);
+        dirty.set(true);
+    }
+
+    private void markDirty(int seatNumber) {
+        int index = seatNumber - 1;
+        long bit = 1L << index;
+        int word = index >>> 6;
+        if ((dirtySeats.get(word) & bit) == 0) dirtySeats.getAndAccumulate(word, bit, (x, y) -> x | y);
+    }
+
+    // Runs on the EDT once per frame: in-place rewrites of changed seats (the log is batched by EventLog)
+    private void flush() {
+        if (!dirty.getAndSet(false)) return; // Nothing happened since the last frame
+
+        StringBuilder line = new StringBuilder(32);
+        for (int word = 0; word < dirtySeats.length(); word++) {
+            long bits = dirtySeats.getAndSet(word, 0);
+            while (bits != 0) {
+                int seatNumber = (word << 6) + Long.numberOfTrailingZeros(bits) + 1;
+                bits &= bits - 1; // Clear lowest set bit
+                line.setLength(0);
+                TicketBookingSys.appendSeatLine(line, seatNumber, manager);
+                replaceLine(seatNumber - 1, line.toString());
+            }
+        }
+        statsLabel.setText("📊 Free: " + manager.getAvailableCount() + " | " + manager.getStats().summary());
+    }
+
+    private void replaceLine(int lineIndex, String text) {
+        try {
+            int start = statusArea.getLineStartOffset(lineIndex);
+            int end = statusArea.getLineEndOffset(lineIndex);
+            statusArea.replaceRange(text, start, end);
+        } catch (javax.swing.text.BadLocationException e) {
+            // Display was rebuilt with fewer lines in the meantime; nothing to update
+        }
+    }
+}
+
+// BookingEngine owns the threads that drain the booking queue.
+// The execution model is chosen once at startup:
+// - Platform pool: N long-lived worker threads, each running the BookingProcessor loop
+//   until the queue is empty. Best when bookings are CPU bound.
+// - Virtual threads: one virtual thread per drained batch, so batches that block (the simulated
+//   delay, I/O) do not tie up a carrier thread.
+// Configured with -Dbooking.workers=N, -Dbooking.virtualThreads=true, -Dbooking.batchSize=N
+// and -Dbooking.delayMillis=ms.
+class BookingEngine {
+    private final ExecutorService executor; // Runs the workers (or one task per batch)
+    private final int workers;              // Number of concurrent workers in platform mode
+    private final boolean virtualThreads;   // True = one virtual thread per batch
+    private final int batchSize;            // Batch size passed to processors
+    private final long delayMillis;         // Per-batch delay passed to processors
+    private volatile boolean shutdown = false;
+
+    public BookingEngine(int workers, boolean virtualThreads, int batchSize, long delayMillis) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers must be at least 1.");
+        }
+        this.workers = workers;
+        this.virtualThreads = virtualThreads;
+        this.batchSize = batchSize;
+        this.delayMillis = delayMillis;
+        this.executor = virtualThreads
+            ? Executors.newVirtualThreadPerTaskExecutor()
+            : Executors.newFixedThreadPool(workers, daemonThreads());
+    }
+
+    // Build an engine from system properties, defaulting to one platform worker per core
+    static BookingEngine fromSystemProperties() {
+        return new BookingEngine(
+            Integer.getInteger("booking.workers", Runtime.getRuntime().availableProcessors()),
+            Boolean.getBoolean("booking.virtualThreads"),
+            Integer.getInteger("booking.batchSize", BookingProcessor.DEFAULT_BATCH_SIZE),
+            Long.getLong("booking.delayMillis", BookingProcessor.DEFAULT_DELAY_MILLIS)
+        );
+    }
+
+    // Drain the processor's queue asynchronously. Returns immediately.
+    public void process(BookingProcessor processor) {
+        if (shutdown) return; // Window is closing, ignore late clicks
+        if (virtualThreads) {
+            // A single dispatcher hands each batch to its own virtual thread
+            executor.execute(() -> dispatchPerBatch(processor));
+        } else {
+            // N workers share the queue; each exits when poll() finds it empty
+            for (int i = 0; i < workers; i++) executor.execute(processor);
+        }
+    }
+
+    private void dispatchPerBatch(BookingProcessor processor) {
+        while (!shutdown) {
+            java.util.List<BookingRequest> batch = new java.util.ArrayList<>(processor.batchSize);
+            if (processor.drainBatch(batch) == 0) return;
+            executor.execute(() -> processor.processBatch(batch));
+        }
+    }
+
+    // Stop accepting work, let in-flight requests finish, then interrupt stragglers
+    public void shutdown() {
+        shutdown = true;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(2, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getDelayMillis() {
+        return delayMillis;
+    }
+
+    // Human readable description for the GUI log
+    public String describe() {
+        return virtualThreads
+            ? "virtual thread per batch of " + batchSize + ", delay " + delayMillis + "ms per batch"
+            : workers + " platform workers, batches of " + batchSize + ", delay " + delayMillis + "ms per batch";
+    }
+
+    // Named daemon threads so a forgotten pool never keeps the JVM alive
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, "booking-worker-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
+
+// Outcome of offering a request to BookingAdmission
+enum AdmissionResult {
+    ACCEPTED,      // Queued for processing
+    RATE_LIMITED,  // User exceeded their request rate
+    DUPLICATE,     // Same user already has the same seat(s) queued or in flight
+    QUEUE_FULL     // Bounded queue is full, request shed
+}
+
+// BookingAdmission sits in front of BookingProcessor and decides which requests get queued.
+// Checks run cheapest first so floods are shed before they cost worker time or memory:
+// 1. Per-user rate limit: a token bucket per userId, stored as one AtomicLong "theoretical
+//    arrival time" (GCRA), updated with CAS. Buckets live in a ConcurrentHashMap, whose
+//    lookups are lock-free and whose updates are striped per bin.
+// 2. Duplicate collapse: a concurrent set of (user, seat) keys already queued or in flight.
+// 3. Bounded queue: a full queue rejects immediately instead of growing without limit.
+// Processors call complete() once a request is finished so the user may ask for it again.
+class BookingAdmission {
+    static final int MAX_TRACKED_USERS = 100_000; // Idle buckets are swept beyond this
+    private static final long RETIRED = Long.MIN_VALUE; // Bucket value once swept; users fetch a fresh one
+
+    private final BlockingQueue<BookingRequest> queue;
+    private final long intervalNanos;  // Time to earn one token
+    private final long burstNanos;     // How far ahead of now a user may run (burst * interval)
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final Set<String> pending = ConcurrentHashMap.newKeySet(); // (user, seat) keys in the system
+    private final AtomicLong nextSweepNanos = new AtomicLong(System.nanoTime()); // Sweeps run at most once a burst window
+    private final LongAdder[] results = new LongAdder[AdmissionResult.values().length];
+
+    public BookingAdmission(int queueCapacity, double requestsPerSecondPerUser, int burst) {
+        if (queueCapacity < 1 || requestsPerSecondPerUser <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Queue capacity, rate and burst must be positive.");
+        }
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.intervalNanos = (long) (1_000_000_000L / requestsPerSecondPerUser);
+        this.burstNanos = intervalNanos * burst;
+        for (int i = 0; i < results.length; i++) results[i] = new LongAdder();
+    }
+
+    // Build from -Dbooking.queueCapacity, -Dbooking.userRatePerSec and -Dbooking.userBurst
+    static BookingAdmission fromSystemProperties() {
+        return new BookingAdmission(
+            Integer.getInteger("booking.queueCapacity", 10_000),
+            Double.parseDouble(System.getProperty("booking.userRatePerSec", "5")),
+            Integer.getInteger("booking.userBurst", 10)
+        );
+    }
+
+    // Try to admit a request. Never blocks.
+    public AdmissionResult offer(BookingRequest request) {
+        AdmissionResult result = admit(request);
+        results[result.ordinal()].increment();
+        return result;
+    }
+
+    private AdmissionResult admit(BookingRequest request) {
+        if (!tryAcquire(request.userId)) return AdmissionResult.RATE_LIMITED;
+        String key = pendingKey(request);
+        if (!pending.add(key)) return AdmissionResult.DUPLICATE;
+        request.admissionKey = key; // Kept on the request: best-available seats change after booking
+        if (!queue.offer(request)) {
+            pending.remove(key);
+            return AdmissionResult.QUEUE_FULL;
+        }
+        return AdmissionResult.ACCEPTED;
+    }
+
+    // Called by processors after a request has been booked (or failed)
+    public void complete(BookingRequest request) {
+        if (request.admissionKey != null) pending.remove(request.admissionKey);
+    }
+
+    // GCRA token bucket: each request pushes the user's arrival time forward by one interval;
+    // a request is rejected if that would put it more than one burst ahead of now.
+    private boolean tryAcquire(String userId) {
+        long now = System.nanoTime();
+        AtomicLong tat = bucket(userId, now);
+        while (true) {
+            long current = tat.get();
+            if (current == RETIRED) {             // Swept after we fetched it: start over with a fresh one
+                buckets.remove(userId, tat);
+                tat = bucket(userId, now);
+                continue;
+            }
+            long next = Math.max(current, now) + intervalNanos;
+            if (next - now > burstNanos) return false;
+            if (tat.compareAndSet(current, next)) return true;
+        }
+    }
+
+    private AtomicLong bucket(String userId, long now) {
+        AtomicLong tat = buckets.get(userId);
+        if (tat != null) return tat;
+        if (buckets.size() >= MAX_TRACKED_USERS) sweepIdleBuckets(now);
+        return buckets.computeIfAbsent(userId, _ -> new AtomicLong(now));
+    }
+
+    // Drop buckets that have fully refilled; they behave exactly like a fresh bucket. A bucket is
+    // first retired with a CAS from its idle value, so a user updating it concurrently either
+    // wins (and the bucket stays) or sees RETIRED and fetches a new one; no update is lost.
+    // Runs on one thread at a time and at most once per burst window: every bucket still active
+    // at one sweep has refilled by the next.
+    private void sweepIdleBuckets(long now) {
+        long due = nextSweepNanos.get();
+        if (now - due < 0 || !nextSweepNanos.compareAndSet(due, now + burstNanos)) return;
+        for (Map.Entry<String, AtomicLong> entry : buckets.entrySet()) {
+            AtomicLong tat = entry.getValue();
+            long current = tat.get();
+            if (current != RETIRED && current <= now && tat.compareAndSet(current, RETIRED)) {
+                buckets.remove(entry.getKey(), tat);
+            }
+        }
+    }
+
+    // Key by the seat for single requests, by the seat list or block size for groups
+    private static String pendingKey(BookingRequest request) {
+        if (!request.isGroup()) return request.userId + "#" + request.seatNumber;
+        if (request.seatNumbers == null) return request.userId + "#block" + request.groupSize;
+        return request.userId + "#" + java.util.Arrays.toString(request.seatNumbers);
+    }
+
+    public BlockingQueue<BookingRequest> getQueue() {
+        return queue;
+    }
+
+    public long count(AdmissionResult result) {
+        return results[result.ordinal()].sum();
+    }
+
+    // One-line summary for the GUI log
+    String summary() {
+        return "Admitted " + count(AdmissionResult.ACCEPTED) +
+            ", rate limited " + count(AdmissionResult.RATE_LIMITED) +
+            ", duplicates " + count(AdmissionResult.DUPLICATE) +
+            ", queue full " + count(AdmissionResult.QUEUE_FULL);
+    }
+}
+
+// BookingLoadTest drives SeatManager and BookingProcessor without Swing to size capacity.
+// For each locking strategy it runs an open-loop generator at a fixed arrival rate (requests are
+// timestamped with their intended send time, so a stalled system cannot hide its own latency),
+// picks seats with a Zipf distribution so a few front seats are hot, and drains the queue with
+// N worker threads. It prints throughput, conflict rates and a p50/p99/p99.9 latency histogram.
+//
+// Run with: java Question5.TicketBookingSys --load-test [key=value ...]
+//   seats=10000 requests=200000 rate=100000 (0 = as fast as possible) threads=<cores>
+//   zipf=1.0 (0 = uniform) batch=32 modes=PESSIMISTIC,OPTIMISTIC,LOCK_FREE seed=42
+class BookingLoadTest {
+    final int seats, requests, threads, batchSize;
+    final double rate, zipf;
+    final long seed;
+    final LockingMode[] modes;
+
+    BookingLoadTest(Map<String, String> options) {
+        seats = Integer.parseInt(options.getOrDefault("seats", "10000"));
+        requests = Integer.parseInt(options.getOrDefault("requests", "200000"));
+        rate = Double.parseDouble(options.getOrDefault("rate", "100000"));
+        threads = Integer.parseInt(options.getOrDefault("threads",
+            String.valueOf(Runtime.getRuntime().availableProcessors())));
+        zipf = Double.parseDouble(options.getOrDefault("zipf", "1.0"));
+        batchSize = Integer.parseInt(options.getOrDefault("batch", String.valueOf(BookingProcessor.DEFAULT_BATCH_SIZE)));
+        seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        String modeList = options.getOrDefault("modes", "PESSIMISTIC,OPTIMISTIC,LOCK_FREE");
+        String[] names = modeList.split(",");
+        modes = new LockingMode[names.length];
+        for (int i = 0; i < names.length; i++) modes[i] = LockingMode.valueOf(names[i].trim().toUpperCase());
+    }
+
+    static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new TreeMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        new BookingLoadTest(options).run();
+    }
+
+    void run() throws InterruptedException {
+        System.out.printf("Load test: %d seats, %d requests, rate %s/s, %d threads, zipf %.2f, batch %d%n",
+            seats, requests, rate > 0 ? String.valueOf((long) rate) : "max", threads, zipf, batchSize);
+        System.out.printf("%-12s %12s %8s %10s %8s %10s %10s %10s %10s%n",
+            "mode", "throughput/s", "booked", "conflict%", "retries", "p50(us)", "p99(us)", "p999(us)", "max(us)");
+        double[] cdf = zipfCdf(seats, zipf);
+        for (LockingMode mode : modes) runMode(mode, cdf);
+    }
+
+    private void runMode(LockingMode mode, double[] cdf) throws InterruptedException {
+        SeatManager manager = new SeatManager(seats);
+        BlockingQueue<BookingRequest> queue = new LinkedBlockingQueue<>();
+        LatencyHistogram latency = new LatencyHistogram();
+        BookingListener recorder = (batch, results) -> {
+            long now = System.nanoTime();
+            for (BookingRequest request : batch) latency.record(now - request.enqueuedNanos);
+        };
+        BookingProcessor processor = new BookingProcessor(queue, manager, mode, recorder, batchSize, 0);
+        AtomicBoolean generating = new AtomicBoolean(true);
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                java.util.List<BookingRequest> batch = new java.util.ArrayList<>(batchSize);
+                while (generating.get() || !queue.isEmpty()) {
+                    if (processor.drainBatch(batch) == 0) {
+                        LockSupport.parkNanos(20_000); // Queue momentarily empty
+                        continue;
+                    }
+                    processor.processBatch(batch);
+                    batch.clear();
+                }
+            }, "load-worker-" + t);
+            workers[t].start();
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        String[] users = new String[1024];
+        for (int u = 0; u < users.length; u++) users[u] = "User" + u;
+        long start = System.nanoTime();
+        double intervalNanos = rate > 0 ? 1e9 / rate : 0;
+        for (int i = 0; i < requests; i++) {
+            long intended = start + (long) (i * intervalNanos);
+            if (rate > 0) {
+                long wait = intended - System.nanoTime();
+                if (wait > 0) LockSupport.parkNanos(wait);
+            }
+            BookingRequest request = new BookingRequest(users[random.nextInt(users.length)], sampleSeat(cdf, random));
+            request.enqueuedNanos = rate > 0 ? intended : System.nanoTime();
+            queue.add(request);
+        }
+        generating.set(false);
+        for (Thread worker : workers) worker.join();
+        long elapsed = System.nanoTime() - start;
+
+        BookingStats stats = manager.getStats();
+        long attempts = stats.booked.sum() + stats.rejected.sum() + stats.retries.sum();
+        System.out.printf("%-12s %12.0f %8d %9.2f%% %8d %10.1f %10.1f %10.1f %10.1f%n",
+            mode.label, requests * 1e9 / elapsed, stats.booked.sum(),
+            attempts == 0 ? 0.0 : 100.0 * stats.conflicts.sum() / attempts, stats.retries.sum(),
+            latency.percentile(50) / 1e3, latency.percentile(99) / 1e3,
+            latency.percentile(99.9) / 1e3, latency.max() / 1e3);
+    }
+
+    // Cumulative Zipf(s) weights by popularity rank; rank r is seat r (front seats are hottest)
+    static double[] zipfCdf(int seats, double s) {
+        double[] cdf = new double[seats];
+        double total = 0;
+        for (int rank = 1; rank <= seats; rank++) {
+            total += 1.0 / Math.pow(rank, s);
+            cdf[rank - 1] = total;
+        }
+        for (int i = 0; i < seats; i++) cdf[i] /= total;
+        return cdf;
+    }
+
+    static int sampleSeat(double[] cdf, SplittableRandom random) {
+        int index = java.util.Arrays.binarySearch(cdf, random.nextDouble());
+        return (index >= 0 ? index : -index - 1) + 1;
+    }
+}
+
+// BookingRestartCheck: headless check that bookings made through every path survive a restart.
+// Books a seat through BookingProcessor and confirms a timed checkout hold, both against a
+// journal; releases a second hold and lets a third expire. It then reopens the journal, replays
+// it into a fresh SeatManager and compares which seats are booked. Exits with status 1 on a mismatch.
+//
+// Run with: java Question5.TicketBookingSys --restart-check [journal=<file>] (default: a temp file)
+class BookingRestartCheck {
+    static void main(String[] args) throws java.io.IOException, InterruptedException {
+        Map<String, String> options = new TreeMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        java.nio.file.Path path = options.containsKey("journal")
+            ? java.nio.file.Paths.get(options.get("journal"))
+            : java.nio.file.Files.createTempFile("booking-check", ".journal");
+        java.nio.file.Files.deleteIfExists(path);
+        java.nio.file.Files.deleteIfExists(path.resolveSibling(path.getFileName() + ".snapshot"));
+
+        long[] expected;
+        try (TimingWheel timer = new TimingWheel(10, 256, 4);
+             BookingJournal journal = BookingJournal.open(path, 1 << 20)) {
+            SeatManager manager = new SeatManager(40);
+            manager.setHoldTimer(timer);
+            manager.setJournal(journal);
+            timer.start();
+
+            BlockingQueue<BookingRequest> queue = new LinkedBlockingQueue<>();
+            queue.add(new BookingRequest("Processed", 3));
+            new BookingProcessor(queue, manager, LockingMode.LOCK_FREE, (batch, results) -> { }, 8, 0)
+                .journalTo(journal).run();
+
+            long confirmed = manager.placeHold(7, 60_000);
+            long released = manager.placeHold(8, 60_000);
+            manager.placeHold(9, 20);                              // Left to expire
+            require(manager.confirmHold(7, confirmed, "Checkout"), "hold on seat 7 could not be confirmed");
+            require(manager.releaseHold(8, released), "hold on seat 8 could not be released");
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (manager.getSeatState(9) == SeatManager.HELD && System.nanoTime() < deadline) Thread.sleep(5);
+            require(manager.getSeatState(9) == SeatManager.AVAILABLE, "hold on seat 9 did not expire");
+            expected = manager.bookedBitmap();
+        }
+
+        try (BookingJournal journal = BookingJournal.open(path, 1 << 20)) {
+            SeatManager restarted = new SeatManager(40);
+            restarted.restore(journal);
+            require(java.util.Arrays.equals(expected, restarted.bookedBitmap()),
+                "booked seats differ after replay");
+            require(restarted.isBooked(3) && restarted.isBooked(7), "seats 3 and 7 should be booked after replay");
+            require(!restarted.isBooked(8) && !restarted.isBooked(9), "seats 8 and 9 should be free after replay");
+        }
+        System.out.println("Restart check passed: processed booking and confirmed hold replayed from " + path);
+    }
+
+    private static void require(boolean condition, String message) {
+        if (condition) return;
+        System.err.println("Restart check failed: " + message);
+        System.exit(1);
+    }
+}
+
 // Main GUI class for the Online Ticket Booking System
 // Features:
 // - Display seat availability and booking logs
 // - Buttons to simulate booking requests, process bookings, and toggle locking mode
 // - Uses concurrency for booking request processing with UI updates on EDT
 public class TicketBookingSys extends JFrame {
+    static final long MAX_JOURNAL_CAPACITY_MB = Integer.MAX_VALUE >> 20; // One mapping is int-indexed (< 2GB)
+
     SeatManager seatManager = new SeatManager(40);              // Manage 40 seats
-    BlockingQueue<BookingRequest> bookingQueue = new LinkedBlockingQueue<>();
-    boolean useOptimisticLocking = true;                        // Default locking mode
+    BookingAdmission admission = BookingAdmission.fromSystemProperties(); // Rate limits and dedups requests
+    BlockingQueue<BookingRequest> bookingQueue = admission.getQueue();   // Bounded queue fed by admission
+    LockingMode lockingMode = LockingMode.OPTIMISTIC;           // Default locking mode
+    BookingEngine bookingEngine = BookingEngine.fromSystemProperties(); // Worker pool draining the queue
+    BookingJournal journal;                                     // Durable booking log, null if disabled
+    TimingWheel holdTimer = new TimingWheel(10, 256, 4);        // Expires checkout holds
+    long holdTtlMillis = Long.getLong("booking.holdTtlMillis", 5000);
 
     JTextArea statusArea = new JTextArea(20, 30);               // Show seat availability
     JTextArea logArea = new JTextArea(10, 30);                  // Show booking logs
+    EventLog eventLog = new EventLog("booking-log", 8192, 50);  // Asynchronous, bounded log writer
+    JLabel statsLabel = new JLabel();                           // Show booking/conflict counters
+    BookingUiPublisher uiPublisher = new BookingUiPublisher(    // Coalesces results into one refresh per frame
+        seatManager, statusArea, eventLog, statsLabel, Integer.getInteger("booking.uiFps", 60));
 
     public TicketBookingSys() {
         super("🎟️ Online Ticket Booking System");
 
         statusArea.setEditable(false); // User cannot edit seat status display
         logArea.setEditable(false);    // User cannot edit log display
+        openEventLog();  // Capped log area, plus a rolling file with -Dbooking.logFile=<file>
 
-        // Button to generate 10 random booking requests into the queue
+        openJournal(); // Restore sold seats from -Dbooking.journal=<file> if configured
+
+        seatManager.setHoldTimer(holdTimer);
+        seatManager.setSeatChangeListener(uiPublisher::seatChanged); // Show expired holds as free again
+        holdTimer.start();
+
+        // Button to offer 10 random booking requests to the admission stage
         JButton simulateBtn = new JButton("Simulate Bookings");
         simulateBtn.addActionListener(_ -> {
             for (int i = 1; i <= 10; i++) {
                 int seat = (int)(Math.random() * 40) + 1; // Random seat 1-40
-                bookingQueue.add(new BookingRequest("User" + i, seat));
+                admission.offer(new BookingRequest("User" + i, seat));
             }
+            eventLog.publish(EventLog.MESSAGE, "🛡️ " + admission.summary());
         });
 
-        // Button to start processing the booking requests asynchronously
-        JButton processBtn = new JButton("Process Bookings");
-        processBtn.addActionListener(_ -> {
-            new Thread(new BookingProcessor(
-                bookingQueue,
-                seatManager,
-                useOptimisticLocking,
-                logArea,
-                this::refreshSeatDisplay
-            )).start();
+        // Button to queue an all-or-nothing request for the best block of 2-8 adjacent seats
+        JButton groupBtn = new JButton("Group Booking");
+        groupBtn.addActionListener(_ -> {
+            int size = (int)(Math.random() * 7) + 2; // Random group size 2-8
+            admission.offer(BookingRequest.bestAvailable("Group" + size, size));
+        });
+
+        // Button to hold a random free seat for checkout; it returns to inventory when the TTL runs out
+        JButton holdBtn = new JButton("Hold Seat");
+        holdBtn.addActionListener(_ -> {
+            int seat = (int)(Math.random() * seatManager.getTotalSeats()) + 1;
+            boolean held = seatManager.placeHold(seat, holdTtlMillis) >= 0;
+            eventLog.publish(EventLog.MESSAGE, held
+                ? "⏳ Seat " + seat + " held for " + holdTtlMillis + "ms"
+                : "❌ Seat " + seat + " is not available to hold");
+            uiPublisher.seatChanged(seat);
         });
 
-        // Button to toggle between optimistic and pessimistic locking modes
+        // Button to start processing the booking requests asynchronously on the engine's workers
+        JButton processBtn = new JButton("Process Bookings");
+        processBtn.addActionListener(_ -> bookingEngine.process(new BookingProcessor(
+            bookingQueue,
+            seatManager,
+            lockingMode,
+            uiPublisher,
+            bookingEngine.getBatchSize(),
+            bookingEngine.getDelayMillis()
+        ).journalTo(journal).admittedBy(admission)));
+
+        // Button to cycle through optimistic, lock-free and pessimistic locking modes
         JButton toggleBtn = new JButton("Toggle Locking");
-        JLabel lockLabel = new JLabel("🔒 Mode: Optimistic");
+        JLabel lockLabel = new JLabel("🔒 Mode: " + lockingMode.label);
         toggleBtn.addActionListener(_ -> {
-            useOptimisticLocking = !useOptimisticLocking;
-            lockLabel.setText("🔒 Mode: " +
-                (useOptimisticLocking ? "Optimistic" : "Pessimistic"));
+            lockingMode = lockingMode.next();
+            lockLabel.setText("🔒 Mode: " + lockingMode.label);
         });
 
         // Panel to hold control buttons and lock mode label
         JPanel controlPanel = new JPanel();
         controlPanel.add(simulateBtn);
+        controlPanel.add(groupBtn);
+        controlPanel.add(holdBtn);
         controlPanel.add(processBtn);
         controlPanel.add(toggleBtn);
         controlPanel.add(lockLabel);
@@ -183,27 +1291,113 @@ public class TicketBookingSys extends JFrame {
         // Add panels to JFrame layout
         add(controlPanel, BorderLayout.NORTH);
         add(textPanel, BorderLayout.CENTER);
+        add(statsLabel, BorderLayout.SOUTH);
 
         refreshSeatDisplay(); // Initialize seat display text
+        uiPublisher.start();  // Begin publishing booking results once per frame
+
+        eventLog.publish(EventLog.MESSAGE, "⚙️ Engine: " + bookingEngine.describe());
+
+        // Stop the workers cleanly before the JVM exits
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                uiPublisher.stop();
+                holdTimer.close();
+                bookingEngine.shutdown();
+                closeJournal();
+                eventLog.close();
+            }
+        });
 
         // Set window properties
-        setSize(500, 600);
+        setSize(760, 600);
         setDefaultCloseOperation(EXIT_ON_CLOSE);
         setLocationRelativeTo(null); // Center window on screen
         setVisible(true);
     }
 
-    // Refresh seat availability display based on current seat map
+    // Open the journal named by -Dbooking.journal, replay it into the seat manager and compact it
+    // so the next start only replays bookings made from now on
+    void openJournal() {
+        String path = System.getProperty("booking.journal");
+        if (path == null) return;
+        long capacityMb = Long.getLong("booking.journalCapacityMb", 256);
+        if (capacityMb < 1 || capacityMb > MAX_JOURNAL_CAPACITY_MB) {
+            eventLog.publish(EventLog.MESSAGE, "⚠️ Journal disabled: booking.journalCapacityMb must be between 1 and " +
+                MAX_JOURNAL_CAPACITY_MB + ", got " + capacityMb);
+            return;
+        }
+        try {
+            journal = BookingJournal.open(java.nio.file.Paths.get(path), (int) (capacityMb << 20));
+            long start = System.nanoTime();
+            seatManager.restore(journal);
+            journal.compact(seatManager.bookedBitmap());
+            seatManager.setJournal(journal);
+            eventLog.publish(EventLog.MESSAGE, "💾 Restored " + (seatManager.getTotalSeats() - seatManager.getAvailableCount()) +
+                " booked seats from " + path + " in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+        } catch (java.io.IOException e) {
+            journal = null;
+            eventLog.publish(EventLog.MESSAGE, "⚠️ Journal disabled: " + e.getMessage());
+        }
+    }
+
+    // Route the event log to the log area (last -Dbooking.logLines lines, default 2000) and,
+    // if -Dbooking.logFile is set, to a file rolled at 10MB with three old files kept
+    void openEventLog() {
+        eventLog.addSink(EventLog.textAreaSink(logArea, Integer.getInteger("booking.logLines", 2000)));
+        String path = System.getProperty("booking.logFile");
+        if (path != null) {
+            try {
+                eventLog.addSink(new EventLog.RollingFileSink(java.nio.file.Paths.get(path), 10L << 20, 3));
+            } catch (java.io.IOException e) {
+                System.err.println("Booking log file disabled: " + e.getMessage());
+            }
+        }
+        eventLog.start();
+    }
+
+    // Snapshot and close the journal once the workers have stopped
+    void closeJournal() {
+        if (journal == null) return;
+        seatManager.setJournal(null);
+        try {
+            journal.compact(seatManager.bookedBitmap());
+        } catch (java.io.IOException e) {
+            System.err.println("Could not snapshot booking journal: " + e.getMessage());
+        }
+        journal.close();
+    }
+
+    // Rebuild the whole seat availability display; later changes are patched in by BookingUiPublisher
     void refreshSeatDisplay() {
         StringBuilder sb = new StringBuilder();
-        seatManager.getSeats().forEach((k, v) ->
-            sb.append("Seat ").append(k).append(": ")
-              .append(v ? "Booked ✅" : "Available 🟢").append("\n"));
+        for (int seat = 1; seat <= seatManager.getTotalSeats(); seat++) {
+            appendSeatLine(sb, seat, seatManager);
+        }
         statusArea.setText(sb.toString());
+        statsLabel.setText("📊 Free: " + seatManager.getAvailableCount() + " | " + seatManager.getStats().summary());
     }
 
-    // Main method to launch the GUI on the Swing event dispatch thread
-    public static void main(String[] args) {
+    // Format one line of the seat display (including the trailing newline)
+    static void appendSeatLine(StringBuilder sb, int seat, SeatManager manager) {
+        int state = manager.getSeatState(seat);
+        sb.append("Seat ").append(seat).append(": ")
+          .append(state == SeatManager.BOOKED ? "Booked ✅" : state == SeatManager.HELD ? "Held ⏳" : "Available 🟢")
+          .append("\n");
+    }
+
+    // Main method to launch the GUI on the Swing event dispatch thread,
+    // or the headless load generator with --load-test, or the journal check with --restart-check
+    public static void main(String[] args) throws InterruptedException, java.io.IOException {
+        if (args.length > 0 && args[0].equals("--load-test")) {
+            BookingLoadTest.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--restart-check")) {
+            BookingRestartCheck.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         SwingUtilities.invokeLater(TicketBookingSys::new);
     }
 }
@@ -0,0 +1,158 @@
+package Question5;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+// Hierarchical timing wheel for expiring seat holds.
+//
+// Level 0 has wheelSize slots of one tick each; every level above covers wheelSize slots of the
+// whole level below (e.g. 10ms ticks, 256 slots, 4 levels = 2.56s, 11min, 46h, ~500 days).
+// A timeout goes into the lowest level whose span covers it and is cascaded one level down each
+// time the lower wheel wraps, so scheduling and expiring are O(1) per hold no matter how many
+// holds are pending, and there is no ScheduledFuture or heap entry per hold.
+//
+// Any thread can schedule: new timeouts are pushed onto a lock-free inbox with one CAS. All wheel
+// slots are owned by the single ticker thread, which drains the inbox each tick, so expiry never
+// takes a lock that booking threads could contend on.
+class TimingWheel implements AutoCloseable {
+    private final long tickNanos;
+    private final int wheelBits;  // log2(wheelSize)
+    private final int wheelMask;
+    private final Timeout[][] levels; // levels[level][slot] = intrusive list of timeouts
+    private final AtomicReference<Timeout> inbox = new AtomicReference<>(); // Lock-free stack of new timeouts
+    private final long startNanos;
+    private long currentTick = 0;  // Ticker thread only
+    private Thread ticker;
+    private volatile boolean running = false;
+
+    // Called on the ticker thread when a timeout is due. Keep it short.
+    interface ExpiryHandler {
+        void onExpire(int id, long token);
+    }
+
+    public TimingWheel(long tickMillis, int wheelSize, int levelCount) {
+        if (tickMillis < 1 || Integer.bitCount(wheelSize) != 1 || levelCount < 1) {
+            throw new IllegalArgumentException("tickMillis must be >= 1, wheelSize a power of two and levelCount >= 1.");
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.wheelBits = Integer.numberOfTrailingZeros(wheelSize);
+        this.wheelMask = wheelSize - 1;
+        this.levels = new Timeout[levelCount][wheelSize];
+        this.startNanos = System.nanoTime();
+    }
+
+    // Schedule handler.onExpire(id, token) after delayMillis. Safe to call from any thread.
+    public void schedule(ExpiryHandler handler, int id, long token, long delayMillis) {
+        long deadlineTick = (System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(delayMillis)
+            + tickNanos - 1) / tickNanos;
+        Timeout timeout = new Timeout(handler, id, token, deadlineTick);
+        Timeout head;
+        do {
+            head = inbox.get();
+            timeout.next = head;
+        } while (!inbox.compareAndSet(head, timeout));
+    }
+
+    // Start the daemon ticker thread
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        ticker = new Thread(this::runTicker, "hold-timer");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        if (ticker != null) ticker.interrupt();
+    }
+
+    private void runTicker() {
+        while (running && !Thread.currentThread().isInterrupted()) {
+            long nowTick = (System.nanoTime() - startNanos) / tickNanos;
+            drainInbox();
+            while (currentTick < nowTick) advance();
+            long nextTickAt = startNanos + (currentTick + 1) * tickNanos;
+            LockSupport.parkNanos(Math.max(0, nextTickAt - System.nanoTime()));
+        }
+    }
+
+    // Move every newly scheduled timeout from the inbox into the wheel
+    private void drainInbox() {
+        Timeout timeout = inbox.getAndSet(null);
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            placeOrExpire(timeout);
+            timeout = next;
+        }
+    }
+
+    // Fire a timeout that is already due, otherwise put it in the wheel
+    private void placeOrExpire(Timeout timeout) {
+        if (timeout.deadlineTick <= currentTick) {
+            timeout.handler.onExpire(timeout.id, timeout.token);
+        } else {
+            place(timeout);
+        }
+    }
+
+    // Advance one tick: cascade higher levels that wrapped, then fire the due level-0 slot
+    private void advance() {
+        currentTick++;
+        for (int level = 1; level < levels.length; level++) {
+            if ((currentTick & ((1L << (wheelBits * level)) - 1)) != 0) break; // Lower wheel did not wrap
+            int slot = (int) (currentTick >>> (wheelBits * level)) & wheelMask;
+            Timeout timeout = levels[level][slot];
+            levels[level][slot] = null;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                placeOrExpire(timeout); // Due this tick: fire now, not a tick late from level 0
+                timeout = next;
+            }
+        }
+        int slot = (int) currentTick & wheelMask;
+        Timeout timeout = levels[0][slot];
+        levels[0][slot] = null;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.deadlineTick <= currentTick) {
+                timeout.handler.onExpire(timeout.id, timeout.token);
+            } else {
+                place(timeout); // Beyond the top level's span; keep cascading
+            }
+            timeout = next;
+        }
+    }
+
+    // Insert into the lowest level whose span still reaches the deadline
+    private void place(Timeout timeout) {
+        long deadline = Math.max(timeout.deadlineTick, currentTick + 1);
+        long delta = deadline - currentTick;
+        int level = 0;
+        while (level < levels.length - 1 && delta >= (1L << (wheelBits * (level + 1)))) level++;
+        if (delta >= (1L << (wheelBits * levels.length))) { // Too far out: park in the furthest top slot
+            deadline = currentTick + (1L << (wheelBits * levels.length)) - 1;
+        }
+        int slot = (int) (deadline >>> (wheelBits * level)) & wheelMask;
+        timeout.next = levels[level][slot];
+        levels[level][slot] = timeout;
+    }
+
+    // One pending expiry, linked into a wheel slot
+    private static final class Timeout {
+        final ExpiryHandler handler;
+        final int id;
+        final long token;
+        final long deadlineTick;
+        Timeout next;
+
+        Timeout(ExpiryHandler handler, int id, long token, long deadlineTick) {
+            this.handler = handler;
+            this.id = id;
+            this.token = token;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
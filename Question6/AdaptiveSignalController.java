@@ -0,0 +1,125 @@
+package Question6;
+
+// AdaptiveSignalController: actuated signal timing driven by the live queues.
+// Every green phase lasts at least MIN_GREEN_MILLIS. After that the controller re-plans at least
+// once a second: it ends the phase as soon as its lanes are empty (gap-out), ends it at
+// MAX_GREEN_MILLIS if traffic never clears (max-out), and otherwise extends it by the time its
+// lanes need to clear, estimated as queue / (discharge rate - arrival rate). Both rates are
+// exponentially weighted averages per phase, measured from the manager's per-lane counters.
+// All-red phases (clearance, unmodelled cross street) keep their planned length, except that an
+// emergency arrival pre-empts them, and any green phase that does not serve it, in favour of
+// the phase that serves the emergency's lane. The plan's clearance is still honoured: a green
+// phase is cut to all-red for the full clearance interval, and an all-red phase is only cut
+// once it has lasted that long. Green is then held until every emergency vehicle in the phase
+// has crossed, even past the maximum.
+class AdaptiveSignalController extends SignalController {
+    static final long MIN_GREEN_MILLIS = 2000;
+    static final long MAX_GREEN_MILLIS = 15000;
+    static final long REPLAN_MILLIS = 1000;        // Longest gap between two green decisions
+    static final long MIN_EXTENSION_MILLIS = 250;  // Shortest extension, avoids busy re-planning
+    private static final double RATE_WEIGHT = 0.3; // EWMA weight of the newest sample
+
+    private final VehicleManager manager;
+    // Rates per phase in vehicles per millisecond; clock thread only
+    private final double[] arrivalRate, dischargeRate;
+    private long sampleMillis, sampleArrivals, sampleDepartures;
+    private long preemptions = 0;
+    private boolean clearing = false;              // Pre-emption clearance running; clock thread only
+
+    public AdaptiveSignalController(SimulationClock clock, VehicleManager manager) {
+        super(clock, manager.getPlan());
+        this.manager = manager;
+        this.arrivalRate = new double[plan.phaseCount()];
+        this.dischargeRate = new double[plan.phaseCount()];
+        for (int phase = 0; phase < plan.phaseCount(); phase++) {
+            dischargeRate[phase] = Integer.bitCount(plan.mask(phase)) / 1000.0; // Until measured, one vehicle a second per lane
+        }
+        manager.addArrivalListener(v -> {
+            if (v.isEmergency) clock.schedule(0, () -> preempt(v.lane));
+        });
+    }
+
+    @Override
+    protected void beginPhase(int phase) {
+        clearing = false;
+        if (!plan.isGreen(phase)) {
+            super.beginPhase(phase);
+            return;
+        }
+        setPhase(phase);
+        sample(false);
+        schedulePhase(MIN_GREEN_MILLIS, this::decide);
+    }
+
+    // Switch to the phase serving an emergency vehicle's lane
+    private void preempt(int lane) {
+        if (clearing || isGreen(lane) || !manager.hasEmergency(lane)) return; // Already on its way
+        if (manager.hasEmergencyIn(getGreenMask())) return; // Finish the current emergency first
+        preemptTo(plan.phaseServing(lane));
+    }
+
+    // Begin the emergency phase once the conflicting movements have had the plan's clearance
+    private void preemptTo(int target) {
+        preemptions++;
+        long wait;
+        if (isGreen()) {
+            setPhase(plan.clearancePhase());
+            wait = plan.clearanceMillis();
+        } else {
+            cancelPhaseEvents();           // The planned end of this all-red phase is replaced
+            wait = plan.clearanceMillis() - phaseElapsedMillis();
+        }
+        if (wait <= 0) {
+            beginPhase(target);
+            return;
+        }
+        clearing = true;
+        schedulePhase(wait, () -> beginPhase(target));
+    }
+
+    // End of minimum green or of an extension: extend or end the phase
+    private void decide() {
+        int mask = getGreenMask();
+        int queued = manager.sizeIn(mask);
+        sample(queued > 0);
+        long elapsed = phaseElapsedMillis();
+        int emergencyLane;
+        if (manager.hasEmergencyIn(mask)) {                  // Hold green for the emergency vehicle
+            schedulePhase(MIN_EXTENSION_MILLIS, this::decide);
+        } else if ((emergencyLane = manager.firstEmergencyLane()) >= 0) { // One is waiting elsewhere
+            preemptTo(plan.phaseServing(emergencyLane));
+        } else if (queued == 0 || elapsed >= MAX_GREEN_MILLIS) {
+            endPhase();
+        } else {
+            int phase = getPhase();
+            double netRate = dischargeRate[phase] - arrivalRate[phase];
+            long clearMillis = netRate > 0 ? (long) Math.ceil(queued / netRate) : Long.MAX_VALUE;
+            long extension = Math.min(Math.min(clearMillis, REPLAN_MILLIS), MAX_GREEN_MILLIS - elapsed);
+            schedulePhase(Math.max(MIN_EXTENSION_MILLIS, extension), this::decide);
+        }
+    }
+
+    // Fold the served lanes' counters since the last sample into the current phase's averages.
+    // The discharge rate is only measured while the queue stayed busy, otherwise it would just
+    // mirror arrivals. A call with busy = false at the start of a phase only resets the baseline.
+    private void sample(boolean busy) {
+        int phase = getPhase(), mask = getGreenMask();
+        long now = clock.nowMillis();
+        long arrivals = manager.getArrivalCount(mask), departures = manager.getDepartureCount(mask);
+        long elapsed = now - sampleMillis;
+        if (busy && elapsed > 0) {
+            arrivalRate[phase] += RATE_WEIGHT * ((double) (arrivals - sampleArrivals) / elapsed - arrivalRate[phase]);
+            dischargeRate[phase] += RATE_WEIGHT * ((double) (departures - sampleDepartures) / elapsed - dischargeRate[phase]);
+        } else if (elapsed > 0 && phaseElapsedMillis() > 0) {
+            arrivalRate[phase] += RATE_WEIGHT * ((double) (arrivals - sampleArrivals) / elapsed - arrivalRate[phase]);
+        }
+        sampleMillis = now;
+        sampleArrivals = arrivals;
+        sampleDepartures = departures;
+    }
+
+    // Times an emergency arrival cut a phase short
+    public long getPreemptions() {
+        return preemptions;
+    }
+}
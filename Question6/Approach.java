@@ -0,0 +1,15 @@
+package Question6;
+
+// Side of the junction a vehicle arrives from
+enum Approach {
+    NORTH("N"),
+    EAST("E"),
+    SOUTH("S"),
+    WEST("W");
+
+    final String label;
+
+    Approach(String label) {
+        this.label = label;
+    }
+}
@@ -0,0 +1,264 @@
+package Question6;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Headless, faster-than-real-time simulation of a grid of signalised junctions.
+//
+// Every junction is the same model the single-intersection GUI and batch run use: a
+// VehicleManager with the lanes of a PhasePlan, a SignalController (fixed timings, or the
+// AdaptiveSignalController) and a VehicleProcessor, all driven by the junction's own
+// DiscreteEventClock. Vehicles arriving from the N/E/S/W approaches queue in their lane,
+// cross on green at the saturation headway and leave in the direction their turn takes them,
+// either out of the city or into an outbox towards the next junction on their route.
+// Time advances in one-second ticks and each tick runs in two steps on a fixed worker pool
+// (or virtual threads):
+//   1. move: each junction spawns new traffic and runs its clock to the end of the tick;
+//   2. receive: each junction pulls the vehicles its neighbours sent it into its own approaches.
+// A junction only touches its own clock, queues and outboxes in each step and the two steps
+// are separated by a barrier, so the shared classes need no extra locking here. Every junction
+// has its own seeded random generator and pulls from its neighbours in a fixed order, so a given
+// seed always gives identical results regardless of thread count. Junctions start their plans
+// at a random phase, so neighbours are not all green at once.
+//
+// Run with: java Question6.CitySimulation [grid=64x64] [ticks=3600] [threads=<cores>]
+//           [virtual=false] [spawn=0.05] [hops=8] [layout=four|single] [plan=fixed|adaptive]
+//           [emergencyShare=0] [seed=1]
+public class CitySimulation {
+    static final int NORTH = 0, EAST = 1, SOUTH = 2, WEST = 3; // Same order as Approach
+    static final int MAX_HOPS = 65_535;     // Longest trip accepted, in junctions passed
+    static final long TICK_MILLIS = 1000;
+
+    private static final Approach[] APPROACHES = Approach.values();
+
+    private final int width, height;
+    private final Junction[] junctions;
+    private final int maxHops;          // Longest trip, in junctions passed
+    private final double spawnRate;     // Probability per junction per tick of a new vehicle
+    private final double emergencyShare; // Share of spawned vehicles that are emergency vehicles
+    private long tick = 0;
+
+    public CitySimulation(int width, int height, double spawnRate, int maxHops, long seed) {
+        this(width, height, spawnRate, maxHops, "four", false, 0, seed);
+    }
+
+    public CitySimulation(int width, int height, double spawnRate, int maxHops,
+                          String layout, boolean adaptive, double emergencyShare, long seed) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Grid size must be positive.");
+        }
+        if (maxHops < 1 || maxHops > MAX_HOPS) {
+            throw new IllegalArgumentException("hops must be between 1 and " + MAX_HOPS + ", got " + maxHops);
+        }
+        this.width = width;
+        this.height = height;
+        this.spawnRate = spawnRate;
+        this.maxHops = maxHops;
+        this.emergencyShare = emergencyShare;
+        this.junctions = new Junction[width * height];
+        PhasePlan plan = PhasePlan.named(layout); // Immutable, shared by every junction
+        SplittableRandom planRandom = new SplittableRandom(seed);
+        for (int i = 0; i < junctions.length; i++) {
+            int index = i;
+            Junction junction = new Junction(plan, adaptive, new SplittableRandom(seed ^ (0x9E3779B97F4A7C15L * (i + 1))));
+            new VehicleProcessor(junction.manager, junction.signal, junction.clock,
+                (v, waitMillis) -> depart(index, (Traveller) v, waitMillis), VehicleProcessor.DEFAULT_SATURATION_FLOW);
+            junction.signal.start(planRandom.nextInt(plan.phaseCount())); // Runs on the first tick
+            junctions[i] = junction;
+        }
+    }
+
+    // Advance the simulation by the given number of ticks using the executor's threads
+    public void run(long ticks, ExecutorService executor, int partitions) throws InterruptedException {
+        List<Callable<Void>> moveTasks = new ArrayList<>(partitions);
+        List<Callable<Void>> receiveTasks = new ArrayList<>(partitions);
+        int chunk = (junctions.length + partitions - 1) / partitions;
+        for (int from = 0; from < junctions.length; from += chunk) {
+            int start = from, end = Math.min(junctions.length, from + chunk);
+            moveTasks.add(() -> {
+                for (int j = start; j < end; j++) move(j);
+                return null;
+            });
+            receiveTasks.add(() -> {
+                for (int j = start; j < end; j++) receive(j);
+                return null;
+            });
+        }
+        for (long t = 0; t < ticks; t++) {
+            invokeAll(executor, moveTasks);    // Barrier: every outbox is filled
+            invokeAll(executor, receiveTasks); // Barrier: every outbox is drained
+            tick++;
+        }
+    }
+
+    private static void invokeAll(ExecutorService executor, List<Callable<Void>> tasks) throws InterruptedException {
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Simulation step failed", e.getCause());
+            }
+        }
+    }
+
+    // Step 1 for one junction: spawn traffic, then run its signal and discharges to the end of the tick
+    private void move(int index) {
+        Junction junction = junctions[index];
+        if (junction.random.nextDouble() < spawnRate) {
+            VehicleType type = VehicleType.random(junction.random, emergencyShare);
+            Approach side = APPROACHES[junction.random.nextInt(APPROACHES.length)];
+            int hops = 1 + junction.random.nextInt(maxHops);
+            junction.manager.addVehicle(new Traveller(type, side, Turn.random(junction.random), hops));
+            junction.spawned++;
+        }
+        junction.clock.runUntil((tick + 1) * TICK_MILLIS);
+    }
+
+    // A vehicle crossed junction index (on its clock thread, inside move): end its trip or pass it on
+    private void depart(int index, Traveller v, long waitMillis) {
+        Junction junction = junctions[index];
+        junction.discharged++;
+        junction.waitMillis += waitMillis;
+        int heading = heading(v.approach, v.turn);
+        if (v.hopsLeft == 1 || neighbour(index, heading) < 0) {
+            junction.completed++;                            // Trip over or left the grid
+        } else {
+            junction.outboxes.get(heading).add(v);
+        }
+    }
+
+    // Step 2 for one junction: pull vehicles heading here out of each neighbour's outbox.
+    // Each picks its next movement on arrival, since that decides the lane it queues in.
+    private void receive(int index) {
+        Junction junction = junctions[index];
+        for (int side = 0; side < 4; side++) {
+            int from = neighbour(index, side);
+            if (from < 0) continue;
+            ArrayDeque<Traveller> outbox = junctions[from].outboxes.get((side + 2) & 3); // Neighbour sends towards us
+            for (Traveller v; (v = outbox.poll()) != null; ) {
+                junction.manager.addVehicle(new Traveller(v.type, APPROACHES[side], Turn.random(junction.random), v.hopsLeft - 1));
+            }
+        }
+    }
+
+    // Direction of travel after the turn; a vehicle from the south side is travelling north
+    private static int heading(Approach approach, Turn turn) {
+        int travelling = (approach.ordinal() + 2) & 3;
+        switch (turn) {
+            case RIGHT: return (travelling + 1) & 3;
+            case LEFT:  return (travelling + 3) & 3;
+            default:    return travelling;
+        }
+    }
+
+    // Index of the junction next to index in the given direction, or -1 at the city edge
+    private int neighbour(int index, int direction) {
+        int x = index % width, y = index / width;
+        switch (direction) {
+            case NORTH: return y == 0 ? -1 : index - width;
+            case SOUTH: return y == height - 1 ? -1 : index + width;
+            case EAST:  return x == width - 1 ? -1 : index + 1;
+            default:    return x == 0 ? -1 : index - 1;
+        }
+    }
+
+    // Aggregate totals over all junctions (call between runs)
+    public String report() {
+        long spawned = 0, discharged = 0, completed = 0, waitMillis = 0, queued = 0;
+        int maxQueue = 0;
+        for (Junction junction : junctions) {
+            spawned += junction.spawned;
+            discharged += junction.discharged;
+            completed += junction.completed;
+            waitMillis += junction.waitMillis;
+            maxQueue = Math.max(maxQueue, junction.maxQueue);
+            queued += junction.manager.size();
+        }
+        return String.format("spawned %d, passed %d junctions, completed %d trips, still queued %d, " +
+                "avg wait %.1fs per junction, longest queue %d",
+            spawned, discharged, completed, queued,
+            discharged == 0 ? 0.0 : waitMillis / 1000.0 / discharged, maxQueue);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int width = 64, height = 64, threads = Runtime.getRuntime().availableProcessors(), hops = 8;
+        long ticks = 3600, seed = 1;
+        double spawn = 0.05, emergencyShare = 0;
+        boolean virtual = false, adaptive = false;
+        String layout = "four";
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            if (kv.length != 2) continue;
+            switch (kv[0]) {
+                case "grid":
+                    String[] dims = kv[1].split("x");
+                    width = Integer.parseInt(dims[0]);
+                    height = Integer.parseInt(dims[1]);
+                    break;
+                case "ticks":   ticks = Long.parseLong(kv[1]); break;
+                case "threads": threads = Integer.parseInt(kv[1]); break;
+                case "virtual": virtual = Boolean.parseBoolean(kv[1]); break;
+                case "spawn":   spawn = Double.parseDouble(kv[1]); break;
+                case "hops":    hops = Integer.parseInt(kv[1]); break;
+                case "layout":  layout = kv[1]; break;
+                case "plan":    adaptive = kv[1].equals("adaptive"); break;
+                case "emergencyShare": emergencyShare = Double.parseDouble(kv[1]); break;
+                case "seed":    seed = Long.parseLong(kv[1]); break;
+                default: System.err.println("Unknown option " + kv[0]);
+            }
+        }
+
+        CitySimulation simulation = new CitySimulation(width, height, spawn, hops, layout, adaptive, emergencyShare, seed);
+        ExecutorService executor = virtual
+            ? Executors.newVirtualThreadPerTaskExecutor()
+            : Executors.newFixedThreadPool(threads);
+        int partitions = Math.min(width * height, threads * 4); // A few chunks per thread for balance
+        long start = System.nanoTime();
+        try {
+            simulation.run(ticks, executor, partitions);
+        } finally {
+            executor.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%dx%d junctions (%s layout, %s plan), %d simulated seconds in %.2fs wall (%.0fx real time) on %s%n",
+            width, height, layout, adaptive ? "adaptive" : "fixed", ticks, seconds, ticks / seconds,
+            virtual ? "virtual threads" : threads + " threads");
+        System.out.println(simulation.report());
+    }
+
+    // Per-junction state; only touched by the worker that owns the junction in each step
+    private static final class Junction {
+        final DiscreteEventClock clock = new DiscreteEventClock();
+        final VehicleManager manager;
+        final SignalController signal;
+        final SplittableRandom random;
+        final List<ArrayDeque<Traveller>> outboxes = new ArrayList<>(4); // Vehicles leaving, by direction of travel
+        long spawned, discharged, completed, waitMillis;
+        int maxQueue;
+
+        Junction(PhasePlan plan, boolean adaptive, SplittableRandom random) {
+            this.manager = new VehicleManager(clock, plan);
+            this.signal = adaptive ? new AdaptiveSignalController(clock, manager) : new SignalController(clock, plan);
+            this.random = random;
+            for (int side = 0; side < 4; side++) outboxes.add(new ArrayDeque<>());
+            manager.addArrivalListener(_ -> maxQueue = Math.max(maxQueue, manager.size()));
+        }
+    }
+
+    // A vehicle on a trip through the city; a new one is queued at each junction it reaches
+    private static final class Traveller extends Vehicle {
+        final int hopsLeft; // Junctions still to pass, including this one
+
+        Traveller(VehicleType type, Approach approach, Turn turn, int hopsLeft) {
+            super(type, approach, turn);
+            this.hopsLeft = hopsLeft;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package Question6;
+
+import java.util.PriorityQueue;
+
+// Virtual-time implementation of SimulationClock for batch runs.
+// Events sit in a priority queue ordered by (time, sequence number); runUntil() pops them one by one
+// and jumps the clock to each event's time, so no time is spent waiting. Ties are broken by the
+// order events were scheduled, which makes every run with the same inputs and seed identical.
+// Not thread-safe: schedule and run from one thread (typically from inside events).
+class DiscreteEventClock implements SimulationClock {
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private long now = 0;
+    private long sequence = 0;
+    private long processed = 0;
+
+    @Override
+    public long nowMillis() {
+        return now;
+    }
+
+    @Override
+    public void schedule(long delayMillis, Runnable action) {
+        events.add(new Event(now + Math.max(0, delayMillis), sequence++, action));
+    }
+
+    // Process every event due at or before endMillis, then leave the clock at endMillis
+    public void runUntil(long endMillis) {
+        while (!events.isEmpty() && events.peek().time <= endMillis) {
+            Event event = events.poll();
+            now = event.time;
+            event.action.run();
+            processed++;
+        }
+        now = Math.max(now, endMillis);
+    }
+
+    // Number of events executed so far
+    public long getProcessedEvents() {
+        return processed;
+    }
+
+    private static final class Event implements Comparable<Event> {
+        final long time;
+        final long sequence;
+        final Runnable action;
+
+        Event(long time, long sequence, Runnable action) {
+            this.time = time;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package Question6;
+
+// PhasePlan: the lanes of an intersection and the signal phases that serve them.
+//
+// A phase is a set of mutually compatible lanes (a bit mask) that get green together, plus how
+// long it lasts under fixed-time control. A phase with no lanes is an all-red interval: either
+// clearance between two conflicting phases or cross traffic that is not modelled. Lanes within
+// a phase discharge in parallel, each at its own saturation headway, so capacity grows with the
+// number of compatible movements instead of being one vehicle at a time for the whole junction.
+//
+// Two layouts are provided:
+// - single:   the original model, one lane for all traffic, 5s green then 3s red;
+// - fourPhase: N/E/S/W approaches with a straight-and-right lane and a left-turn lane each
+//   (8 lanes), served as N/S straight, N/S left, E/W straight, E/W left, with 2s all-red between.
+final class PhasePlan {
+    static final long SINGLE_GREEN_MILLIS = 5000; // Original fixed plan
+    static final long SINGLE_RED_MILLIS = 3000;
+    static final long CLEARANCE_MILLIS = 2000;    // All-red between two conflicting four-phase greens
+
+    private final String[] laneNames;
+    private final boolean perApproach;  // false = every vehicle uses lane 0
+    private final String[] phaseNames;
+    private final int[] phaseMasks;     // Bit i set = lane i is green in the phase
+    private final long[] phaseMillis;   // Duration under fixed-time control
+    private final long clearanceMillis; // All-red required before a green that cuts another short
+
+    private PhasePlan(String[] laneNames, boolean perApproach, String[] phaseNames,
+                      int[] phaseMasks, long[] phaseMillis, long clearanceMillis) {
+        this.laneNames = laneNames;
+        this.perApproach = perApproach;
+        this.phaseNames = phaseNames;
+        this.phaseMasks = phaseMasks;
+        this.phaseMillis = phaseMillis;
+        this.clearanceMillis = clearanceMillis;
+    }
+
+    // One lane that is green for greenMillis, then red for redMillis. The red phase is the cross
+    // street's time rather than a clearance interval, and the original model had none, so no
+    // clearance is required before pre-empting it.
+    static PhasePlan singleLane(long greenMillis, long redMillis) {
+        return new PhasePlan(new String[] {"All traffic"}, false,
+            new String[] {"", ""}, new int[] {1, 0}, new long[] {greenMillis, redMillis}, 0);
+    }
+
+    // Protected left turns: four green phases of compatible movements with all-red clearance between
+    static PhasePlan fourPhase() {
+        String[] lanes = new String[Approach.values().length * 2];
+        for (Approach approach : Approach.values()) {
+            lanes[laneOf(approach, Turn.STRAIGHT)] = approach.label + " straight/right";
+            lanes[laneOf(approach, Turn.LEFT)] = approach.label + " left";
+        }
+        int nsStraight = bit(Approach.NORTH, Turn.STRAIGHT) | bit(Approach.SOUTH, Turn.STRAIGHT);
+        int nsLeft = bit(Approach.NORTH, Turn.LEFT) | bit(Approach.SOUTH, Turn.LEFT);
+        int ewStraight = bit(Approach.EAST, Turn.STRAIGHT) | bit(Approach.WEST, Turn.STRAIGHT);
+        int ewLeft = bit(Approach.EAST, Turn.LEFT) | bit(Approach.WEST, Turn.LEFT);
+        return new PhasePlan(lanes, true,
+            new String[] {"N/S straight", "", "N/S left", "", "E/W straight", "", "E/W left", ""},
+            new int[] {nsStraight, 0, nsLeft, 0, ewStraight, 0, ewLeft, 0},
+            new long[] {12000, CLEARANCE_MILLIS, 6000, CLEARANCE_MILLIS,
+                        12000, CLEARANCE_MILLIS, 6000, CLEARANCE_MILLIS},
+            CLEARANCE_MILLIS);
+    }
+
+    // Layout by name, as used by -Dtraffic.layout and the batch run's layout= option
+    static PhasePlan named(String name) {
+        switch (name) {
+            case "single": return singleLane(SINGLE_GREEN_MILLIS, SINGLE_RED_MILLIS);
+            case "four":   return fourPhase();
+            default: throw new IllegalArgumentException("Unknown layout " + name + " (use single or four).");
+        }
+    }
+
+    private static int laneOf(Approach approach, Turn turn) {
+        return approach.ordinal() * 2 + (turn == Turn.LEFT ? 1 : 0); // Right turns share the straight lane
+    }
+
+    private static int bit(Approach approach, Turn turn) {
+        return 1 << laneOf(approach, turn);
+    }
+
+    // Lane a vehicle queues in
+    int laneFor(Approach approach, Turn turn) {
+        return perApproach ? laneOf(approach, turn) : 0;
+    }
+
+    int laneCount() {
+        return laneNames.length;
+    }
+
+    String laneName(int lane) {
+        return laneNames[lane];
+    }
+
+    int phaseCount() {
+        return phaseMasks.length;
+    }
+
+    int nextPhase(int phase) {
+        return (phase + 1) % phaseMasks.length;
+    }
+
+    int mask(int phase) {
+        return phaseMasks[phase];
+    }
+
+    boolean isGreen(int phase) {
+        return phaseMasks[phase] != 0;
+    }
+
+    long durationMillis(int phase) {
+        return phaseMillis[phase];
+    }
+
+    long clearanceMillis() {
+        return clearanceMillis;
+    }
+
+    // First all-red phase, used as the clearance interval when a green phase is cut short
+    int clearancePhase() {
+        for (int phase = 0; phase < phaseMasks.length; phase++) {
+            if (phaseMasks[phase] == 0) return phase;
+        }
+        throw new IllegalStateException("Plan has no all-red phase");
+    }
+
+    String phaseName(int phase) {
+        return phaseNames[phase];
+    }
+
+    // First phase that gives the lane green
+    int phaseServing(int lane) {
+        for (int phase = 0; phase < phaseMasks.length; phase++) {
+            if ((phaseMasks[phase] & (1 << lane)) != 0) return phase;
+        }
+        throw new IllegalArgumentException("No phase serves lane " + lane);
+    }
+}
@@ -0,0 +1,38 @@
+package Question6;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Wall-clock implementation of SimulationClock used by the GUI.
+// A single daemon thread runs every action, so actions never overlap.
+class RealTimeClock implements SimulationClock, AutoCloseable {
+    private final long startNanos = System.nanoTime();
+    private final ScheduledExecutorService executor;
+
+    public RealTimeClock() {
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "traffic-clock");
+            t.setDaemon(true);
+            return t;
+        });
+        pool.setRemoveOnCancelPolicy(true);
+        this.executor = pool;
+    }
+
+    @Override
+    public long nowMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public void schedule(long delayMillis, Runnable action) {
+        if (delayMillis <= 0) executor.execute(action);
+        else executor.schedule(action, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,112 @@
+package Question6;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// SignalController: Steps the signal through the phases of a PhasePlan
+// Phase changes are events on a SimulationClock rather than Thread.sleep calls, so the same
+// controller runs in real time behind the GUI or in virtual time for batch runs.
+// Every phase change is published to the registered PhaseListeners.
+// This base class runs the plan's fixed timings; AdaptiveSignalController overrides beginPhase.
+class SignalController {
+    static final long GREEN_MILLIS = PhasePlan.SINGLE_GREEN_MILLIS; // Green light duration (single lane)
+    static final long RED_MILLIS = PhasePlan.SINGLE_RED_MILLIS;     // Red light duration (single lane)
+
+    // Notified on the clock thread whenever the phase changes; green = some lane has green
+    interface PhaseListener {
+        void onPhaseChange(boolean green);
+    }
+
+    protected final SimulationClock clock;
+    protected final PhasePlan plan;
+    private final List<PhaseListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile int phase = 0;              // Current phase; volatile so other threads can read it
+    private volatile int greenMask = 0;          // Lanes that currently have green
+    private long phaseStartMillis = 0;           // Clock thread only
+    private long phaseGeneration = 0;            // Bumped on every change; stale phase events are ignored
+
+    public SignalController(SimulationClock clock) {
+        this(clock, GREEN_MILLIS, RED_MILLIS);
+    }
+
+    public SignalController(SimulationClock clock, long greenMillis, long redMillis) {
+        this(clock, PhasePlan.singleLane(greenMillis, redMillis));
+    }
+
+    public SignalController(SimulationClock clock, PhasePlan plan) {
+        this.clock = clock;
+        this.plan = plan;
+    }
+
+    // Begin cycling from the plan's first phase
+    public void start() {
+        start(0);
+    }
+
+    // Begin cycling from the given phase, e.g. to stagger neighbouring junctions
+    public void start(int firstPhase) {
+        clock.schedule(0, () -> beginPhase(firstPhase));
+    }
+
+    // Called on the clock thread at the start of each phase
+    protected void beginPhase(int phase) {
+        setPhase(phase);
+        schedulePhase(plan.durationMillis(phase), this::endPhase);
+    }
+
+    // Move on to the phase after the current one
+    protected final void endPhase() {
+        beginPhase(plan.nextPhase(phase));
+    }
+
+    // Run next after delayMillis unless the phase has changed by then (e.g. pre-emption)
+    protected final void schedulePhase(long delayMillis, Runnable next) {
+        long generation = phaseGeneration;
+        clock.schedule(delayMillis, () -> {
+            if (phaseGeneration == generation) next.run();
+        });
+    }
+
+    // Drop the pending events of the current phase without changing it (e.g. to replace its end)
+    protected final void cancelPhaseEvents() {
+        phaseGeneration++;
+    }
+
+    protected final void setPhase(int phase) {
+        phaseGeneration++;
+        phaseStartMillis = clock.nowMillis();
+        this.phase = phase;
+        greenMask = plan.mask(phase);
+        for (PhaseListener listener : listeners) listener.onPhaseChange(greenMask != 0);
+    }
+
+    // Milliseconds since the current phase began (clock thread only)
+    protected final long phaseElapsedMillis() {
+        return clock.nowMillis() - phaseStartMillis;
+    }
+
+    // Method for other threads to check if any lane is green
+    public boolean isGreen() {
+        return greenMask != 0;
+    }
+
+    public boolean isGreen(int lane) {
+        return (greenMask & (1 << lane)) != 0;
+    }
+
+    public int getGreenMask() {
+        return greenMask;
+    }
+
+    public int getPhase() {
+        return phase;
+    }
+
+    public PhasePlan getPlan() {
+        return plan;
+    }
+
+    public void addPhaseListener(PhaseListener listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,15 @@
+package Question6;
+
+// Source of time and timers for the signal and vehicle logic.
+// Every scheduled action runs on the clock's single event thread, one at a time, so the logic
+// driven by a clock never needs locks of its own. RealTimeClock follows the wall clock for the
+// GUI; DiscreteEventClock jumps straight from one event to the next for batch runs, so the same
+// code can replay a day of traffic in a fraction of a second with identical results per seed.
+interface SimulationClock {
+    // Milliseconds since the clock started
+    long nowMillis();
+
+    // Run action on the clock's event thread after delayMillis (0 = as soon as possible).
+    // Actions scheduled for the same time run in the order they were scheduled.
+    void schedule(long delayMillis, Runnable action);
+}
@@ -0,0 +1,43 @@
+package Question6;
+
+// JMX view of TrafficMetrics (registered as Question6:type=TrafficMetrics).
+// Times are in milliseconds of simulation clock time.
+public interface TrafficMetricsMBean {
+    long getVehiclesDischarged();
+
+    long getGreenPhases();
+
+    double getMeanDischargedPerGreen();
+
+    long getMaxDischargedPerGreen();
+
+    double getRegularWaitMeanMillis();
+
+    long getRegularWaitP99Millis();
+
+    long getRegularWaitMaxMillis();
+
+    double getEmergencyWaitMeanMillis();
+
+    long getEmergencyWaitP99Millis();
+
+    long getEmergencyWaitMaxMillis();
+
+    int getQueueDepth();
+
+    long getQueueDepthP95();
+
+    long getMaxQueueDepth();
+
+    // Times a lane turned green with an emergency vehicle waiting on it (the samples behind the
+    // pre-emption latency below). Not the adaptive controller's pre-emption count: a fixed plan
+    // also turns such lanes green, and one pre-emption can serve two lanes.
+    long getEmergencyToGreenCount();
+
+    double getPreemptionLatencyMeanMillis();
+
+    long getPreemptionLatencyP99Millis();
+
+    // One-line summary of everything above
+    String dump();
+}
@@ -1,145 +1,431 @@
 package Question6;
 
+import common.EventLog;
+import common.LatencyHistogram;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
 import javax.swing.*;
 import java.awt.*;
-import java.util.List;
-import java.util.ArrayList;
-import java.util.Queue;
-import java.util.LinkedList;
-import java.util.PriorityQueue;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// TrafficMetrics: telemetry for one intersection, cheap and safe to update on the hot path.
+// Counters are LongAdders and distributions are lock-free log-linear histograms, so producers,
+// the clock thread and JMX readers never contend on a lock. Recorded:
+// - vehicles discharged in each green phase;
+// - wait from addVehicle to discharge, split into emergency and regular vehicles;
+// - queue depth, sampled once a second of clock time, plus the peak seen on any arrival;
+// - pre-emption latency: from an emergency vehicle arriving on red to its lane turning green.
+// Exposed over JMX (TrafficMetricsMBean) and as a one-line dump that can be printed periodically.
+class TrafficMetrics implements TrafficMetricsMBean {
+    static final String OBJECT_NAME = "Question6:type=TrafficMetrics";
+    static final long QUEUE_SAMPLE_MILLIS = 1000;
+
+    private final SimulationClock clock;
+    private final VehicleManager manager;
+    private final LongAdder discharged = new LongAdder();
+    private final LongAdder greenPhases = new LongAdder();
+    private final LatencyHistogram dischargedPerGreen = new LatencyHistogram();
+    private final LatencyHistogram regularWait = new LatencyHistogram();
+    private final LatencyHistogram emergencyWait = new LatencyHistogram();
+    private final LatencyHistogram queueDepth = new LatencyHistogram();
+    private final LatencyHistogram preemptionLatency = new LatencyHistogram();
+    private final LongAccumulator maxQueueDepth = new LongAccumulator(Math::max, 0);
+    // Per lane: arrival time of the first emergency vehicle waiting on red, or -1
+    private final AtomicLongArray emergencyWaitingSince;
+    private long dischargedThisGreen = 0; // Clock thread only
+    private boolean inGreen = false;      // Clock thread only
+
+    public TrafficMetrics(SimulationClock clock, VehicleManager manager, SignalController signal) {
+        this.clock = clock;
+        this.manager = manager;
+        this.emergencyWaitingSince = new AtomicLongArray(manager.getPlan().laneCount());
+        for (int lane = 0; lane < emergencyWaitingSince.length(); lane++) emergencyWaitingSince.set(lane, -1);
+        manager.addArrivalListener(v -> {
+            maxQueueDepth.accumulate(manager.size());
+            if (v.isEmergency && !signal.isGreen(v.lane)) emergencyWaitingSince.compareAndSet(v.lane, -1, v.arrivalMillis);
+        });
+        signal.addPhaseListener(green -> {
+            if (inGreen) {                    // A green phase just ended, possibly straight into another
+                greenPhases.increment();
+                dischargedPerGreen.record(dischargedThisGreen);
+                dischargedThisGreen = 0;
+            }
+            inGreen = green;
+            for (int mask = signal.getGreenMask(); mask != 0; mask &= mask - 1) {
+                long since = emergencyWaitingSince.getAndSet(Integer.numberOfTrailingZeros(mask), -1);
+                if (since >= 0) preemptionLatency.record(clock.nowMillis() - since);
+            }
+        });
+        clock.schedule(QUEUE_SAMPLE_MILLIS, this::sampleQueue);
+    }
 
-// Vehicle Class: Represents a vehicle with a type and an emergency flag
-class Vehicle implements Comparable<Vehicle> {
-    String type;          // Type of vehicle, e.g., Car, Ambulance
-    boolean isEmergency;  // Flag to indicate if the vehicle is emergency
+    // Record one departure; called from the processor's discharge listener on the clock thread
+    public void onDischarge(Vehicle v, long waitMillis) {
+        discharged.increment();
+        dischargedThisGreen++;
+        (v.isEmergency ? emergencyWait : regularWait).record(waitMillis);
+    }
 
-    public Vehicle(String type, boolean isEmergency) {
-        this.type = type;
-        this.isEmergency = isEmergency;
+    private void sampleQueue() {
+        queueDepth.record(manager.size());
+        clock.schedule(QUEUE_SAMPLE_MILLIS, this::sampleQueue);
     }
 
-    // Text representation includes emoji and type
-    @Override
-    public String toString() {
-        return (isEmergency ? "🚨" : "🚗") + " " + type;
+    // Print dump() every periodMillis of clock time
+    public void startDump(long periodMillis, java.io.PrintStream out) {
+        clock.schedule(periodMillis, () -> {
+            out.println("📊 " + dump());
+            startDump(periodMillis, out);
+        });
+    }
+
+    // Register with the platform MBean server; failure only costs the JMX view
+    public void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("Traffic metrics not available over JMX: " + e.getMessage());
+        }
     }
 
-    // Vehicles with emergency status have higher priority in queues
+    @Override public long getVehiclesDischarged() { return discharged.sum(); }
+    @Override public long getGreenPhases() { return greenPhases.sum(); }
+    @Override public double getMeanDischargedPerGreen() { return dischargedPerGreen.mean(); }
+    @Override public long getMaxDischargedPerGreen() { return dischargedPerGreen.max(); }
+    @Override public double getRegularWaitMeanMillis() { return regularWait.mean(); }
+    @Override public long getRegularWaitP99Millis() { return regularWait.percentile(99); }
+    @Override public long getRegularWaitMaxMillis() { return regularWait.max(); }
+    @Override public double getEmergencyWaitMeanMillis() { return emergencyWait.mean(); }
+    @Override public long getEmergencyWaitP99Millis() { return emergencyWait.percentile(99); }
+    @Override public long getEmergencyWaitMaxMillis() { return emergencyWait.max(); }
+    @Override public int getQueueDepth() { return manager.size(); }
+    @Override public long getQueueDepthP95() { return queueDepth.percentile(95); }
+    @Override public long getMaxQueueDepth() { return maxQueueDepth.get(); }
+    @Override public long getEmergencyToGreenCount() { return preemptionLatency.count(); }
+    @Override public double getPreemptionLatencyMeanMillis() { return preemptionLatency.mean(); }
+    @Override public long getPreemptionLatencyP99Millis() { return preemptionLatency.percentile(99); }
+
     @Override
-    public int compareTo(Vehicle other) {
-        // Returns negative if this has higher priority (emergency true)
-        return Boolean.compare(other.isEmergency, this.isEmergency);
+    public String dump() {
+        return String.format("discharged %d in %d greens (mean %.1f, max %d per green), " +
+                "wait regular mean %.0fms p99 %dms, emergency mean %.0fms p99 %dms, " +
+                "queue now %d p95 %d max %d, emergency-to-green %d times mean %.0fms p99 %dms",
+            getVehiclesDischarged(), getGreenPhases(), getMeanDischargedPerGreen(), getMaxDischargedPerGreen(),
+            getRegularWaitMeanMillis(), getRegularWaitP99Millis(),
+            getEmergencyWaitMeanMillis(), getEmergencyWaitP99Millis(),
+            getQueueDepth(), getQueueDepthP95(), getMaxQueueDepth(),
+            getEmergencyToGreenCount(), getPreemptionLatencyMeanMillis(), getPreemptionLatencyP99Millis());
     }
 }
 
-// 🚦 VehicleManager: Manages queues of vehicles waiting at the signal
-class VehicleManager {
-    // FIFO queue for regular vehicles
-    private final Queue<Vehicle> regularQueue = new LinkedList<>();
-    // Priority queue for emergency vehicles (emergency vehicles get higher priority)
-    private final PriorityQueue<Vehicle> emergencyQueue = new PriorityQueue<>();
+// TraceReplayer: feeds a recorded TrafficTrace into a VehicleManager on a SimulationClock.
+// Only the next arrival is ever scheduled, so memory use is the same for a minute of traffic or
+// a month. speed scales recorded time: 2 replays twice as fast, 0.5 at half speed.
+// The reader is closed once the last record has been delivered.
+class TraceReplayer {
+    private final TrafficTrace.Reader reader;
+    private final VehicleManager manager;
+    private final SimulationClock clock;
+    private final double speed;
+    private long startMillis;
+    private long replayed = 0;
+    private volatile boolean finished = false;
 
-    // Add vehicle to appropriate queue based on emergency status
-    public synchronized void addVehicle(Vehicle v) {
-        if (v.isEmergency) emergencyQueue.add(v);
-        else regularQueue.add(v);
+    public TraceReplayer(TrafficTrace.Reader reader, VehicleManager manager, SimulationClock clock, double speed) {
+        if (speed <= 0) throw new IllegalArgumentException("Replay speed must be positive.");
+        this.reader = reader;
+        this.manager = manager;
+        this.clock = clock;
+        this.speed = speed;
     }
 
-    // Retrieve the next vehicle to process, emergency vehicles get precedence
-    public synchronized Vehicle getNextVehicle() {
-        if (!emergencyQueue.isEmpty()) return emergencyQueue.poll();
-        return regularQueue.poll();
+    public void start() {
+        clock.schedule(0, () -> {
+            startMillis = clock.nowMillis();
+            if (reader.next()) scheduleCurrent();
+            else finish();
+        });
     }
 
-    // Return list of all vehicles currently queued for display or other uses
-    public synchronized List<Vehicle> getAllVehicles() {
-        List<Vehicle> list = new ArrayList<>();
-        list.addAll(emergencyQueue);
-        list.addAll(regularQueue);
-        return list;
+    // Clock time at which the current record is due
+    private long dueMillis() {
+        return startMillis + (long) (reader.timeMillis() / speed);
     }
-}
 
-// SignalController: Controls the traffic signal cycling between green and red lights
-// Runs as a separate thread that loops infinitely to simulate signal changes
-class SignalController extends Thread {
-    private volatile boolean greenLight = true; // Volatile to ensure visibility across threads
+    private void scheduleCurrent() {
+        clock.schedule(dueMillis() - clock.nowMillis(), this::deliver);
+    }
 
-    @Override
-    public void run() {
-        while (true) {
-            greenLight = true;                      // Turn green light ON
-            System.out.println("🟢 GREEN Light");
-            try {
-                Thread.sleep(5000);                 // Green light duration: 5 seconds
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+    // Add every record that is due by now, then schedule the next one
+    private void deliver() {
+        long now = clock.nowMillis();
+        do {
+            manager.addVehicle(new Vehicle(reader.type(), reader.approach(), reader.turn()));
+            replayed++;
+            if (!reader.next()) {
+                finish();
+                return;
             }
+        } while (dueMillis() <= now);
+        scheduleCurrent();
+    }
 
-            greenLight = false;                     // Turn red light ON
-            System.out.println("🔴 RED Light");
-            try {
-                Thread.sleep(3000);                 // Red light duration: 3 seconds
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+    private void finish() {
+        finished = true;
+        try {
+            reader.close();
+        } catch (IOException e) {
+            System.err.println("Could not close trace: " + e.getMessage());
+        }
+    }
+
+    public long getReplayed() {
+        return replayed;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+}
+
+// TrafficBatchRun: runs the signal and vehicle logic on a DiscreteEventClock as fast as possible.
+// Vehicles arrive as a Poisson process drawn from a seeded generator, or are replayed from a
+// recorded TrafficTrace, so the same options always produce the same report (including the
+// checksum over every departure). layout=four models N/E/S/W approaches with turning lanes
+// and a four-phase plan (see PhasePlan); the default single lane keeps the original model.
+// By default the same arrivals are run under the fixed plan and the adaptive controller and
+// the two are compared. A replay runs until the trace ends (plus a minute to drain) unless
+// hours is given.
+//
+// Run with: java Question6.TrafficSignalSystem --batch [plan=compare|fixed|adaptive] [hours=24]
+//           [layout=single|four] [perMinute=30] [emergencyShare=0.05] [saturationFlow=3600] [seed=1]
+//           [trace=<file>] [speed=1]
+class TrafficBatchRun {
+    final boolean adaptive;
+    final String trace;
+    final String layout;
+    final double speed;
+    double hours;
+    final double perMinute, emergencyShare;
+    final int saturationFlow;
+    final long seed;
+
+    long arrived, discharged, emergencyDischarged, totalWait, emergencyWait, maxWait, checksum, preemptions;
+    int maxQueue;
+    TrafficMetrics metrics;
+
+    TrafficBatchRun(java.util.Map<String, String> options, boolean adaptive) {
+        this.adaptive = adaptive;
+        trace = options.get("trace");
+        layout = options.getOrDefault("layout", "single");
+        speed = Double.parseDouble(options.getOrDefault("speed", "1"));
+        hours = Double.parseDouble(options.getOrDefault("hours", trace == null ? "24" : "0"));
+        perMinute = Double.parseDouble(options.getOrDefault("perMinute", "30"));
+        emergencyShare = Double.parseDouble(options.getOrDefault("emergencyShare", "0.05"));
+        saturationFlow = Integer.parseInt(options.getOrDefault("saturationFlow",
+            String.valueOf(VehicleProcessor.DEFAULT_SATURATION_FLOW)));
+        seed = Long.parseLong(options.getOrDefault("seed", "1"));
+    }
+
+    static java.util.Map<String, String> parseOptions(String[] args) {
+        java.util.Map<String, String> options = new java.util.TreeMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    static void main(String[] args) throws IOException {
+        java.util.Map<String, String> options = parseOptions(args);
+        String plan = options.getOrDefault("plan", "compare");
+        TrafficBatchRun fixed = null, adaptive = null;
+        if (!plan.equals("adaptive")) fixed = runAndPrint(new TrafficBatchRun(options, false));
+        if (!plan.equals("fixed")) adaptive = runAndPrint(new TrafficBatchRun(options, true));
+        if (fixed != null && adaptive != null) {
+            System.out.printf("adaptive vs fixed: avg wait %+.1f%%, throughput %+.1f%%%n",
+                percentChange(fixed.averageWaitMillis(), adaptive.averageWaitMillis()),
+                percentChange(fixed.throughputPerHour(), adaptive.throughputPerHour()));
+        }
+    }
+
+    private static TrafficBatchRun runAndPrint(TrafficBatchRun run) throws IOException {
+        long start = System.nanoTime();
+        run.run();
+        double wallSeconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s plan, %s layout: simulated %.1fh in %.3fs wall (%.0fx real time)%n",
+            run.adaptive ? "Adaptive" : "Fixed", run.layout, run.hours, wallSeconds, run.hours * 3600 / wallSeconds);
+        System.out.println("  " + run.report());
+        System.out.println("  " + run.metrics.dump());
+        return run;
+    }
+
+    private static double percentChange(double before, double after) {
+        return before == 0 ? 0 : (after - before) * 100 / before;
+    }
+
+    void run() throws IOException {
+        DiscreteEventClock clock = new DiscreteEventClock();
+        PhasePlan plan = PhasePlan.named(layout);
+        VehicleManager manager = new VehicleManager(clock, plan);
+        AdaptiveSignalController adaptiveSignal = adaptive ? new AdaptiveSignalController(clock, manager) : null;
+        SignalController signal = adaptive ? adaptiveSignal : new SignalController(clock, plan);
+        metrics = new TrafficMetrics(clock, manager, signal);
+        new VehicleProcessor(manager, signal, clock, (v, waitMillis) -> {
+            metrics.onDischarge(v, waitMillis);
+            discharged++;
+            totalWait += waitMillis;
+            maxWait = Math.max(maxWait, waitMillis);
+            if (v.isEmergency) {
+                emergencyDischarged++;
+                emergencyWait += waitMillis;
             }
+            checksum = checksum * 31 + waitMillis;
+        }, saturationFlow);
+        manager.addArrivalListener(_ -> {
+            arrived++;
+            maxQueue = Math.max(maxQueue, manager.size());
+        });
+        signal.start();
+
+        if (trace != null) {
+            TrafficTrace.Reader reader = TrafficTrace.Reader.open(Paths.get(trace));
+            if (hours <= 0) hours = (reader.lastTimeMillis() / speed + 60_000) / 3_600_000;
+            new TraceReplayer(reader, manager, clock, speed).start();
+        } else {
+            SplittableRandom random = new SplittableRandom(seed);
+            double meanGapMillis = 60_000.0 / perMinute;
+            Approach[] approaches = Approach.values();
+            Runnable[] arrival = new Runnable[1];
+            arrival[0] = () -> {
+                VehicleType type = VehicleType.random(random, emergencyShare);
+                manager.addVehicle(plan.laneCount() == 1
+                    ? new Vehicle(type)     // Same draws as before lanes existed
+                    : new Vehicle(type, approaches[random.nextInt(approaches.length)], Turn.random(random)));
+                clock.schedule(exponential(random, meanGapMillis), arrival[0]);
+            };
+            clock.schedule(exponential(random, meanGapMillis), arrival[0]);
         }
+        clock.runUntil((long) (hours * 3_600_000));
+        if (adaptiveSignal != null) preemptions = adaptiveSignal.getPreemptions();
+    }
+
+    // Exponential inter-arrival gap for a Poisson process
+    static long exponential(SplittableRandom random, double meanMillis) {
+        return Math.round(-meanMillis * Math.log(1 - random.nextDouble()));
+    }
+
+    double averageWaitMillis() {
+        return discharged == 0 ? 0.0 : (double) totalWait / discharged;
     }
 
-    // Method for other threads to check if the signal is green
-    public boolean isGreen() {
-        return greenLight;
+    double throughputPerHour() {
+        return hours == 0 ? 0.0 : discharged / hours;
+    }
+
+    String report() {
+        long regular = discharged - emergencyDischarged;
+        return String.format("arrived %d, discharged %d (%.0f/h), avg wait %.1fs (regular %.1fs, emergency %.1fs), " +
+                "max wait %.1fs, max queue %d, pre-emptions %d, checksum %016x",
+            arrived, discharged, throughputPerHour(),
+            averageWaitMillis() / 1000.0,
+            regular == 0 ? 0.0 : (totalWait - emergencyWait) / 1000.0 / regular,
+            emergencyDischarged == 0 ? 0.0 : emergencyWait / 1000.0 / emergencyDischarged,
+            maxWait / 1000.0, maxQueue, preemptions, checksum);
     }
 }
 
-//  VehicleProcessor: Continuously processes vehicles when the signal is green
-// It runs as a separate thread, polling vehicles from the manager and logging their passage
-class VehicleProcessor extends Thread {
-    private final VehicleManager manager;       // Vehicle queue manager
-    private final SignalController signal;      // Signal controller thread
-    private final JTextArea logArea;             // GUI area to log vehicle passing events
-    private final Runnable updateQueue;          // Runnable to update vehicle queue display
-
-    // Constructor to initialize references to shared resources
-    public VehicleProcessor(VehicleManager manager, SignalController signal,
-                            JTextArea logArea, Runnable updateQueue) {
+// QueueView: bounded display model of the queue for the GUI.
+// Arrivals and departures only mark the view dirty (one atomic write, from any thread). A Swing
+// timer on the event dispatch thread redraws at most REFRESH_MILLIS apart and only when dirty,
+// from the manager's per-type counters and the first HEAD_ROWS vehicles, so a refresh costs the
+// same with ten queued vehicles or a hundred thousand and never blocks producers. The head array
+// and text buffer are reused between refreshes.
+class QueueView {
+    static final int HEAD_ROWS = 20;          // Vehicles listed individually
+    static final int REFRESH_MILLIS = 100;    // Fastest redraw rate (10 per second)
+
+    private final VehicleManager manager;
+    private final JTextArea area;
+    private final Vehicle[] head = new Vehicle[HEAD_ROWS];
+    private final StringBuilder text = new StringBuilder(64 * (HEAD_ROWS + 2));
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private final javax.swing.Timer timer;
+
+    public QueueView(VehicleManager manager, JTextArea area) {
         this.manager = manager;
-        this.signal = signal;
-        this.logArea = logArea;
-        this.updateQueue = updateQueue;
+        this.area = area;
+        this.timer = new javax.swing.Timer(REFRESH_MILLIS, _ -> {
+            if (dirty.getAndSet(false)) refresh();
+        });
     }
 
-    @Override
-    public void run() {
-        while (true) {
-            // Only process vehicles when signal is green
-            if (signal.isGreen()) {
-                Vehicle v = manager.getNextVehicle(); // Get next vehicle from queue
-                if (v != null) {
-                    String msg = "⏩ " + v + " passed the intersection.\n";
-
-                    // Update GUI safely on Swing's Event Dispatch Thread
-                    SwingUtilities.invokeLater(() -> {
-                        logArea.append(msg);          // Append message to log area
-                        updateQueue.run();            // Refresh vehicle queue display
-                    });
-                }
-            }
-            try {
-                Thread.sleep(1000);                   // Sleep to avoid busy waiting, simulates vehicle processing time
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();  // Restore interrupt status
+    // Safe to call from any thread
+    public void markDirty() {
+        dirty.set(true);
+    }
+
+    public void start() {
+        timer.start();
+    }
+
+    public void stop() {
+        timer.stop();
+    }
+
+    // Redraw counts and the head of the queue (event dispatch thread only)
+    private void refresh() {
+        text.setLength(0);
+        text.append("Waiting: ").append(manager.size()).append("  (");
+        for (VehicleType type : VehicleType.values()) {
+            if (type.ordinal() > 0) text.append("  ");
+            text.append(type.icon).append(' ').append(manager.getQueuedCount(type));
+        }
+        text.append(")\n");
+        PhasePlan plan = manager.getPlan();
+        if (plan.laneCount() > 1) {
+            for (int lane = 0; lane < plan.laneCount(); lane++) {
+                text.append(lane % 4 == 0 ? "" : "   ").append(plan.laneName(lane)).append(": ").append(manager.size(lane));
+                if (lane % 4 == 3 || lane == plan.laneCount() - 1) text.append('\n');
             }
         }
+
+        int shown = manager.copyHead(head);
+        for (int i = 0; i < shown; i++) {
+            text.append(head[i]).append('\n');
+            head[i] = null;                       // Do not keep departed vehicles reachable
+        }
+        int more = manager.size() - shown;
+        if (more > 0) text.append("… and ").append(more).append(" more\n");
+        area.setText(text.toString());
     }
 }
 
 //TrafficSignalSystem GUI: Main application frame with user controls and display areas
 public class TrafficSignalSystem extends JFrame {
-    private final VehicleManager manager = new VehicleManager();     // Manage vehicle queues
-    private final SignalController signalThread = new SignalController(); // Traffic light controller thread
+    // Log line for a discharged vehicle, formatted on the event log's consumer thread
+    static final EventLog.Template PASSED = (out, v, _, _, _) ->
+        out.append("⏩ ").append(v).append(" passed the intersection.\n");
+
+    private final RealTimeClock clock = new RealTimeClock();          // Wall-clock event loop
+    private final PhasePlan plan = PhasePlan.named(System.getProperty("traffic.layout", "four")); // Lanes and phases
+    private final VehicleManager manager = new VehicleManager(clock, plan); // Manage vehicle queues
+    private final SignalController signal = Boolean.parseBoolean(System.getProperty("traffic.fixedPlan", "false"))
+        ? new SignalController(clock, plan)                 // Fixed timings from the plan
+        : new AdaptiveSignalController(clock, manager);     // Queue-actuated timing with pre-emption
     private final JTextArea queueArea = new JTextArea(10, 30);       // Displays queued vehicles
     private final JTextArea logArea = new JTextArea(10, 30);         // Displays log of vehicles passing
+    private final EventLog eventLog = new EventLog("traffic-log", 8192, 50); // Asynchronous, bounded log writer
+    private final QueueView queueView = new QueueView(manager, queueArea); // Counts plus head of the queue
+    private final TrafficMetrics metrics = new TrafficMetrics(clock, manager, signal); // Telemetry, also over JMX
 
     public TrafficSignalSystem() {
         super("🚦 Traffic Signal Management System");
@@ -148,22 +434,34 @@ public class TrafficSignalSystem extends JFrame {
         JButton addCarBtn = new JButton("Add Regular Vehicle");
         JButton addEmergencyBtn = new JButton("Add Emergency Vehicle");
 
+        // Approach and turn used by every add button
+        JComboBox<Approach> approachBox = new JComboBox<>(Approach.values());
+        JComboBox<Turn> turnBox = new JComboBox<>(Turn.values());
+
         // Add regular vehicle on button click
-        addCarBtn.addActionListener(_ -> {
-            manager.addVehicle(new Vehicle("Car", false));
-            updateQueueDisplay();
-        });
+        addCarBtn.addActionListener(_ -> manager.addVehicle(new Vehicle(VehicleType.CAR,
+            (Approach) approachBox.getSelectedItem(), (Turn) turnBox.getSelectedItem())));
 
         // Add emergency vehicle on button click
-        addEmergencyBtn.addActionListener(_ -> {
-            manager.addVehicle(new Vehicle("Ambulance", true));
-            updateQueueDisplay();
-        });
+        addEmergencyBtn.addActionListener(_ -> manager.addVehicle(new Vehicle(VehicleType.AMBULANCE,
+            (Approach) approachBox.getSelectedItem(), (Turn) turnBox.getSelectedItem())));
+
+        // Any other vehicle class (fire truck, police, bus) via a picker
+        JComboBox<VehicleType> typeBox = new JComboBox<>(VehicleType.values());
+        JButton addTypeBtn = new JButton("Add");
+        addTypeBtn.addActionListener(_ -> manager.addVehicle(new Vehicle((VehicleType) typeBox.getSelectedItem(),
+            (Approach) approachBox.getSelectedItem(), (Turn) turnBox.getSelectedItem())));
 
         // Control panel for buttons
         JPanel controlPanel = new JPanel();
+        if (plan.laneCount() > 1) {
+            controlPanel.add(approachBox);
+            controlPanel.add(turnBox);
+        }
         controlPanel.add(addCarBtn);
         controlPanel.add(addEmergencyBtn);
+        controlPanel.add(typeBox);
+        controlPanel.add(addTypeBtn);
 
         // Configure text areas as read-only
         queueArea.setEditable(false);
@@ -174,30 +472,78 @@ public class TrafficSignalSystem extends JFrame {
         add(new JScrollPane(queueArea), BorderLayout.CENTER);
         add(new JScrollPane(logArea), BorderLayout.SOUTH);
 
-        // Start the signal light controller thread
-        signalThread.start();
+        // Log to the capped log area (-Dtraffic.logLines, default 2000) and optionally a rolling file
+        eventLog.addSink(EventLog.textAreaSink(logArea, Integer.getInteger("traffic.logLines", 2000)));
+        String logFile = System.getProperty("traffic.logFile");
+        if (logFile != null) {
+            try {
+                eventLog.addSink(new EventLog.RollingFileSink(Paths.get(logFile), 10L << 20, 3));
+            } catch (IOException e) {
+                System.err.println("Traffic log file disabled: " + e.getMessage());
+            }
+        }
+        eventLog.start();
+
+        // Redraw the queue whenever vehicles arrive (departures mark it in the processor listener)
+        manager.addArrivalListener(_ -> queueView.markDirty());
+        queueView.start();
 
-        // Start the vehicle processing thread that acts according to signal state
-        new VehicleProcessor(manager, signalThread, logArea, this::updateQueueDisplay).start();
+        // Print every phase change, as the controller thread used to
+        signal.addPhaseListener(green -> {
+            String name = plan.phaseName(signal.getPhase());
+            System.out.println(green ? "🟢 GREEN Light" + (name.isEmpty() ? "" : " — " + name) : "🔴 RED Light");
+        });
+
+        // Vehicle processor reacts to arrivals and phase changes on the clock thread
+        new VehicleProcessor(manager, signal, clock, (v, waitMillis) -> {
+            metrics.onDischarge(v, waitMillis);
+            eventLog.publish(PASSED, v);      // Formatted and shown on the log's own thread
+            queueView.markDirty();            // Queue display catches up on its next tick
+        });
+
+        // Publish telemetry over JMX and, unless disabled with 0, print it every 30 seconds
+        metrics.register();
+        long dumpSeconds = Long.getLong("traffic.metricsDumpSeconds", 30);
+        if (dumpSeconds > 0) metrics.startDump(dumpSeconds * 1000, System.out);
+
+        // Optionally replay a recorded trace, e.g. a rush hour, on top of the buttons
+        String trace = System.getProperty("traffic.trace");
+        if (trace != null) {
+            try {
+                double speed = Double.parseDouble(System.getProperty("traffic.traceSpeed", "1"));
+                new TraceReplayer(TrafficTrace.Reader.open(Paths.get(trace)), manager, clock, speed).start();
+            } catch (IOException e) {
+                System.err.println("Could not replay trace " + trace + ": " + e.getMessage());
+            }
+        }
+
+        // Start the signal light cycle
+        signal.start();
+
+        // Flush the log and stop the clock before the JVM exits
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                queueView.stop();
+                clock.close();
+                eventLog.close();
+            }
+        });
 
         // JFrame setup
-        setSize(500, 600);
+        setSize(640, 600);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);    // Center window on screen
         setVisible(true);
     }
 
-    // Update the display of vehicles currently queued
-    private void updateQueueDisplay() {
-        StringBuilder sb = new StringBuilder();
-        for (Vehicle v : manager.getAllVehicles()) {
-            sb.append(v).append("\n");
+    // Entry point - launch GUI on Swing event dispatch thread,
+    // or a virtual-time batch run with --batch
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            TrafficBatchRun.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            return;
         }
-        queueArea.setText(sb.toString());
-    }
-
-    // Entry point - launch GUI on Swing event dispatch thread
-    public static void main(String[] args) {
         SwingUtilities.invokeLater(TrafficSignalSystem::new);
     }
 }
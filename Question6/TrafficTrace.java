@@ -0,0 +1,289 @@
+package Question6;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+// Compact binary recording of vehicle arrivals, for reproducible benchmarks of the signal system.
+//
+// File layout: a 16-byte header [int magic][short version][short recordBytes][long recordCount]
+// followed by fixed 12-byte records
+//   [long timeMillis][byte vehicleType][byte priority][byte approach][byte turn]
+// in non-decreasing time order, where timeMillis counts from the start of the recording and
+// priority is the type's level when it was recorded. Traces written before turns were
+// recorded have 0 in the last byte, which reads as going straight on. Fixed-size records let
+// the Reader stream through the file one memory-mapped window at a time, so traces of many
+// gigabytes are read with constant heap and no allocation per record.
+//
+// Generate: java Question6.TrafficTrace generate <file> [hours=1] [perMinute=30] [burst=1]
+//           [burstMinutes=2] [calmMinutes=10] [emergencyShare=0.05] [seed=1]
+// Inspect:  java Question6.TrafficTrace info <file>
+// Replay:   java Question6.TrafficSignalSystem --batch trace=<file> [speed=1]
+//           or the GUI with -Dtraffic.trace=<file> [-Dtraffic.traceSpeed=1]
+final class TrafficTrace {
+    static final int MAGIC = 0x54524331; // "TRC1"
+    static final short FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_BYTES = 12;
+
+    private static final VehicleType[] TYPES = VehicleType.values();
+    private static final Approach[] APPROACHES = Approach.values();
+    private static final Turn[] TURNS = Turn.values();
+
+    private TrafficTrace() {
+    }
+
+    // Appends records through a reusable direct buffer; the record count goes into the header on close
+    static final class Writer implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(RECORD_BYTES * 8192);
+        private long count = 0;
+        private long lastTimeMillis = 0;
+
+        private Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        static Writer create(Path path) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            channel.position(HEADER_BYTES);
+            return new Writer(channel);
+        }
+
+        void append(long timeMillis, VehicleType type, Approach approach, Turn turn) throws IOException {
+            if (timeMillis < lastTimeMillis) {
+                throw new IllegalArgumentException("Trace records must be in time order.");
+            }
+            if (buffer.remaining() < RECORD_BYTES) flush();
+            buffer.putLong(timeMillis);
+            buffer.put((byte) type.ordinal());
+            buffer.put((byte) type.level);
+            buffer.put((byte) approach.ordinal());
+            buffer.put((byte) turn.ordinal());
+            lastTimeMillis = timeMillis;
+            count++;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(MAGIC).putShort(FORMAT_VERSION).putShort((short) RECORD_BYTES).putLong(count);
+                header.flip();
+                while (header.hasRemaining()) channel.write(header, header.position());
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    // Streaming cursor over a trace: next() moves to the following record and the accessors
+    // read its fields. Only one window of the file (WINDOW_RECORDS records) is mapped at a time.
+    static final class Reader implements AutoCloseable {
+        static final int WINDOW_RECORDS = 1 << 22; // 48MB of records per mapping
+
+        private final FileChannel channel;
+        private final long recordCount;
+        private MappedByteBuffer window;
+        private long windowFirst = 0;   // Index of the first record in the window
+        private int windowRecords = 0;
+        private long index = -1;        // Current record
+
+        private long timeMillis;
+        private VehicleType type;
+        private int priority;
+        private Approach approach;
+        private Turn turn;
+
+        private Reader(FileChannel channel, long recordCount) {
+            this.channel = channel;
+            this.recordCount = recordCount;
+        }
+
+        static Reader open(Path path) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC
+                    || header.getShort() != FORMAT_VERSION || header.getShort() != RECORD_BYTES) {
+                channel.close();
+                throw new IOException("Not a traffic trace: " + path);
+            }
+            long stored = header.getLong();
+            long available = (channel.size() - HEADER_BYTES) / RECORD_BYTES;
+            // A writer that never closed leaves the count at 0; trust the complete records instead
+            return new Reader(channel, stored > 0 ? Math.min(stored, available) : available);
+        }
+
+        // Advance to the next record; false at the end of the trace
+        boolean next() {
+            if (index + 1 >= recordCount) return false;
+            index++;
+            if (index >= windowFirst + windowRecords) mapWindow(index);
+            int at = (int) (index - windowFirst) * RECORD_BYTES;
+            timeMillis = window.getLong(at);
+            type = TYPES[window.get(at + 8)];
+            priority = window.get(at + 9);
+            approach = APPROACHES[window.get(at + 10)];
+            turn = TURNS[window.get(at + 11)];
+            return true;
+        }
+
+        private void mapWindow(long first) {
+            windowFirst = first;
+            windowRecords = (int) Math.min(WINDOW_RECORDS, recordCount - first);
+            try {
+                window = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_BYTES + first * RECORD_BYTES, (long) windowRecords * RECORD_BYTES);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // Time of the last record, read without streaming through the file
+        long lastTimeMillis() throws IOException {
+            if (recordCount == 0) return 0;
+            ByteBuffer last = ByteBuffer.allocate(8);
+            readFully(channel, last, HEADER_BYTES + (recordCount - 1) * RECORD_BYTES);
+            return last.getLong(0);
+        }
+
+        long getRecordCount() {
+            return recordCount;
+        }
+
+        long timeMillis() {
+            return timeMillis;
+        }
+
+        VehicleType type() {
+            return type;
+        }
+
+        int priority() {
+            return priority;
+        }
+
+        Approach approach() {
+            return approach;
+        }
+
+        Turn turn() {
+            return turn;
+        }
+
+        @Override
+        public void close() throws IOException {
+            window = null;
+            channel.close();
+        }
+    }
+
+    // Write a synthetic trace and return the number of records.
+    // With burst = 1 arrivals are a Poisson process at perMinute. With burst > 1 the rate switches
+    // between calm spells at perMinute and bursts at perMinute * burst (a Markov-modulated Poisson
+    // process), each spell lasting an exponentially distributed time with the given mean.
+    static long generate(Path path, double hours, double perMinute, double burst, double burstMinutes,
+                         double calmMinutes, double emergencyShare, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        double endMillis = hours * 3_600_000;
+        boolean bursting = false;
+        double spellEnd = burst > 1 ? exponential(random, calmMinutes * 60_000) : Double.MAX_VALUE;
+        double time = 0;
+        try (Writer writer = Writer.create(path)) {
+            while (true) {
+                double rate = bursting ? perMinute * burst : perMinute;
+                double next = time + exponential(random, 60_000 / rate);
+                if (next > spellEnd) { // Rate changes first; the process is memoryless, so restart from there
+                    time = spellEnd;
+                    bursting = !bursting;
+                    spellEnd = time + exponential(random, (bursting ? burstMinutes : calmMinutes) * 60_000);
+                    continue;
+                }
+                if (next >= endMillis) break;
+                time = next;
+                writer.append((long) time, VehicleType.random(random, emergencyShare),
+                    APPROACHES[random.nextInt(APPROACHES.length)], Turn.random(random));
+            }
+            return writer.count;
+        }
+    }
+
+    // Positional reads until the buffer is full or the file ends
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) break;
+        }
+    }
+
+    private static double exponential(SplittableRandom random, double mean) {
+        return -mean * Math.log(1 - random.nextDouble());
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || !(args[0].equals("generate") || args[0].equals("info"))) {
+            System.err.println("Usage: TrafficTrace generate <file> [hours=1] [perMinute=30] [burst=1] "
+                + "[burstMinutes=2] [calmMinutes=10] [emergencyShare=0.05] [seed=1]");
+            System.err.println("       TrafficTrace info <file>");
+            return;
+        }
+        Path path = Paths.get(args[1]);
+        if (args[0].equals("generate")) {
+            java.util.Map<String, String> options = new java.util.TreeMap<>();
+            for (int i = 2; i < args.length; i++) {
+                int eq = args[i].indexOf('=');
+                if (eq > 0) options.put(args[i].substring(0, eq), args[i].substring(eq + 1));
+            }
+            long start = System.nanoTime();
+            long count = generate(path,
+                Double.parseDouble(options.getOrDefault("hours", "1")),
+                Double.parseDouble(options.getOrDefault("perMinute", "30")),
+                Double.parseDouble(options.getOrDefault("burst", "1")),
+                Double.parseDouble(options.getOrDefault("burstMinutes", "2")),
+                Double.parseDouble(options.getOrDefault("calmMinutes", "10")),
+                Double.parseDouble(options.getOrDefault("emergencyShare", "0.05")),
+                Long.parseLong(options.getOrDefault("seed", "1")));
+            System.out.printf("Wrote %d arrivals to %s in %.2fs%n", count, path, (System.nanoTime() - start) / 1e9);
+            return;
+        }
+
+        long start = System.nanoTime();
+        long[] perType = new long[TYPES.length];
+        long[] perApproach = new long[APPROACHES.length];
+        long[] perTurn = new long[TURNS.length];
+        long last = 0;
+        try (Reader reader = Reader.open(path)) {
+            while (reader.next()) {
+                perType[reader.type().ordinal()]++;
+                perApproach[reader.approach().ordinal()]++;
+                perTurn[reader.turn().ordinal()]++;
+                last = reader.timeMillis();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d arrivals over %.1f minutes (%.1f per minute), read in %.2fs%n",
+                reader.getRecordCount(), last / 60_000.0,
+                last == 0 ? 0.0 : reader.getRecordCount() * 60_000.0 / last, seconds);
+        }
+        StringBuilder mix = new StringBuilder();
+        for (VehicleType type : TYPES) mix.append(type.label).append(' ').append(perType[type.ordinal()]).append("  ");
+        for (Approach approach : APPROACHES) mix.append(approach.label).append(' ').append(perApproach[approach.ordinal()]).append("  ");
+        for (Turn turn : TURNS) mix.append(turn.arrow).append(' ').append(perTurn[turn.ordinal()]).append("  ");
+        System.out.println(mix.toString().trim());
+    }
+}
@@ -0,0 +1,24 @@
+package Question6;
+
+import java.util.SplittableRandom;
+
+// Movement a vehicle makes through the junction. STRAIGHT is ordinal 0 so traces recorded
+// before turns existed (reserved byte = 0) replay as straight-on traffic.
+enum Turn {
+    STRAIGHT("↑"),
+    LEFT("↰"),
+    RIGHT("↱");
+
+    final String arrow;
+
+    Turn(String arrow) {
+        this.arrow = arrow;
+    }
+
+    // Mostly straight on, sometimes left or right
+    static Turn random(SplittableRandom random) {
+        int roll = random.nextInt(100);
+        if (roll < 70) return STRAIGHT;
+        return roll < 85 ? LEFT : RIGHT;
+    }
+}
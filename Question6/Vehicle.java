@@ -0,0 +1,36 @@
+package Question6;
+
+// Vehicle Class: Represents a vehicle with a type and an emergency flag
+class Vehicle implements Comparable<Vehicle> {
+    final VehicleType type;     // Priority class, e.g. Car, Ambulance
+    final Approach approach;    // Side of the junction it arrived from
+    final Turn turn;            // Movement it makes through the junction
+    final boolean isEmergency;  // Flag to indicate if the vehicle is emergency
+    long arrivalMillis;         // Clock time the vehicle joined the queue
+    long sequence;              // Arrival order, stamped by the VehicleManager
+    int lane;                   // Lane in the manager's PhasePlan, set on arrival
+
+    public Vehicle(VehicleType type) {
+        this(type, Approach.NORTH, Turn.STRAIGHT);
+    }
+
+    public Vehicle(VehicleType type, Approach approach, Turn turn) {
+        this.type = type;
+        this.approach = approach;
+        this.turn = turn;
+        this.isEmergency = type.isEmergency();
+    }
+
+    // Text representation includes emoji, type and movement
+    @Override
+    public String toString() {
+        return type.icon + " " + type.label + " (" + approach.label + turn.arrow + ")";
+    }
+
+    // Higher priority level first, then first come first served within a level
+    @Override
+    public int compareTo(Vehicle other) {
+        int byLevel = Integer.compare(type.level, other.type.level);
+        return byLevel != 0 ? byLevel : Long.compare(sequence, other.sequence);
+    }
+}
@@ -0,0 +1,185 @@
+package Question6;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// 🚦 VehicleManager: Manages queues of vehicles waiting at the signal
+// Every lane of the PhasePlan has one lock-free FIFO (ConcurrentLinkedQueue) per priority level:
+// any number of sensor or producer threads can add vehicles at once without blocking each other
+// or the processor, and vehicles of the same level in a lane leave in the order they were
+// queued. The processor takes from the most urgent non-empty level of a green lane. Counters per
+// lane and level let it skip empty queues without touching them.
+// Stamps each vehicle with the clock time it arrived and tells listeners about every arrival,
+// so the processor and the signal controller can react to it instead of polling.
+class VehicleManager {
+    // Called on the producer's thread after a vehicle has been queued
+    interface ArrivalListener {
+        void onArrival(Vehicle v);
+    }
+
+    private final PhasePlan plan;                 // Maps approach and turn to a lane
+    private final List<ConcurrentLinkedQueue<Vehicle>> queues = new ArrayList<>(); // Index = lane * LEVELS + level
+    // Vehicles per lane and level; raised before the enqueue and lowered after the dequeue, so it
+    // never under-counts a queue and never goes negative
+    private final AtomicIntegerArray queued;
+    private final AtomicIntegerArray queuedPerType = new AtomicIntegerArray(VehicleType.values().length);
+    private final AtomicLongArray laneArrivals, laneDepartures;
+    private final AtomicLong arrivals = new AtomicLong();   // Also the next arrival sequence number
+    private final AtomicLong departures = new AtomicLong();
+    private final SimulationClock clock;          // Time source for arrival stamps
+    private final List<ArrivalListener> arrivalListeners = new CopyOnWriteArrayList<>();
+
+    // The original single-lane model
+    public VehicleManager(SimulationClock clock) {
+        this(clock, PhasePlan.singleLane(SignalController.GREEN_MILLIS, SignalController.RED_MILLIS));
+    }
+
+    public VehicleManager(SimulationClock clock, PhasePlan plan) {
+        this.clock = clock;
+        this.plan = plan;
+        int slots = plan.laneCount() * VehicleType.LEVELS;
+        for (int slot = 0; slot < slots; slot++) queues.add(new ConcurrentLinkedQueue<>());
+        this.queued = new AtomicIntegerArray(slots);
+        this.laneArrivals = new AtomicLongArray(plan.laneCount());
+        this.laneDepartures = new AtomicLongArray(plan.laneCount());
+    }
+
+    // Add vehicle to its lane's queue for its priority level, then notify the listeners. Never blocks.
+    public void addVehicle(Vehicle v) {
+        v.lane = plan.laneFor(v.approach, v.turn);
+        int slot = v.lane * VehicleType.LEVELS + v.type.level;
+        v.arrivalMillis = clock.nowMillis();
+        v.sequence = arrivals.getAndIncrement();
+        laneArrivals.incrementAndGet(v.lane);
+        queued.incrementAndGet(slot);
+        queuedPerType.incrementAndGet(v.type.ordinal());
+        queues.get(slot).offer(v);
+        for (ArrivalListener listener : arrivalListeners) listener.onArrival(v);
+    }
+
+    // Retrieve the next vehicle in a lane from its most urgent non-empty level, or null
+    public Vehicle getNextVehicle(int lane) {
+        for (int slot = lane * VehicleType.LEVELS; slot < (lane + 1) * VehicleType.LEVELS; slot++) {
+            if (queued.get(slot) == 0) continue;
+            Vehicle v = queues.get(slot).poll();
+            if (v != null) {
+                queued.decrementAndGet(slot);
+                queuedPerType.decrementAndGet(v.type.ordinal());
+                laneDepartures.incrementAndGet(lane);
+                departures.incrementAndGet();
+                return v;
+            }
+        }
+        return null;
+    }
+
+    // True while an emergency vehicle is waiting in the lane
+    public boolean hasEmergency(int lane) {
+        for (int level = 0; level < VehicleType.EMERGENCY_LEVELS; level++) {
+            if (queued.get(lane * VehicleType.LEVELS + level) > 0) return true;
+        }
+        return false;
+    }
+
+    // True while an emergency vehicle is waiting in any lane of the mask
+    public boolean hasEmergencyIn(int laneMask) {
+        for (int lanes = laneMask; lanes != 0; lanes &= lanes - 1) {
+            if (hasEmergency(Integer.numberOfTrailingZeros(lanes))) return true;
+        }
+        return false;
+    }
+
+    // Lowest-numbered lane with an emergency vehicle waiting, or -1
+    public int firstEmergencyLane() {
+        for (int lane = 0; lane < plan.laneCount(); lane++) {
+            if (hasEmergency(lane)) return lane;
+        }
+        return -1;
+    }
+
+    // True while an emergency vehicle is waiting anywhere
+    public boolean hasEmergency() {
+        return firstEmergencyLane() >= 0;
+    }
+
+    // Number of vehicles waiting in one lane
+    public int size(int lane) {
+        int total = 0;
+        for (int slot = lane * VehicleType.LEVELS; slot < (lane + 1) * VehicleType.LEVELS; slot++) {
+            total += queued.get(slot);
+        }
+        return total;
+    }
+
+    // Number of vehicles waiting in the lanes of the mask
+    public int sizeIn(int laneMask) {
+        int total = 0;
+        for (int lanes = laneMask; lanes != 0; lanes &= lanes - 1) total += size(Integer.numberOfTrailingZeros(lanes));
+        return total;
+    }
+
+    // Number of vehicles currently waiting
+    public int size() {
+        int total = 0;
+        for (int slot = 0; slot < queued.length(); slot++) total += queued.get(slot);
+        return total;
+    }
+
+    public long getArrivalCount() {
+        return arrivals.get();
+    }
+
+    public long getDepartureCount() {
+        return departures.get();
+    }
+
+    // Arrivals and departures so far in the lanes of the mask
+    public long getArrivalCount(int laneMask) {
+        long total = 0;
+        for (int lanes = laneMask; lanes != 0; lanes &= lanes - 1) total += laneArrivals.get(Integer.numberOfTrailingZeros(lanes));
+        return total;
+    }
+
+    public long getDepartureCount(int laneMask) {
+        long total = 0;
+        for (int lanes = laneMask; lanes != 0; lanes &= lanes - 1) total += laneDepartures.get(Integer.numberOfTrailingZeros(lanes));
+        return total;
+    }
+
+    // Vehicles of one type currently waiting, O(1)
+    public int getQueuedCount(VehicleType type) {
+        return queuedPerType.get(type.ordinal());
+    }
+
+    // Copy the first vehicles in priority order (most urgent level first, lanes in order within
+    // a level) into head and return how many were copied. Walks only as far as head.length, so
+    // the cost does not grow with the queue. Weakly consistent: vehicles added or removed during
+    // the call may or may not appear.
+    public int copyHead(Vehicle[] head) {
+        int n = 0;
+        for (int level = 0; level < VehicleType.LEVELS && n < head.length; level++) {
+            for (int lane = 0; lane < plan.laneCount() && n < head.length; lane++) {
+                int slot = lane * VehicleType.LEVELS + level;
+                if (queued.get(slot) == 0) continue;
+                for (Vehicle v : queues.get(slot)) {
+                    if (n == head.length) break;
+                    head[n++] = v;
+                }
+            }
+        }
+        return n;
+    }
+
+    public PhasePlan getPlan() {
+        return plan;
+    }
+
+    public void addArrivalListener(ArrivalListener listener) {
+        arrivalListeners.add(listener);
+    }
+}
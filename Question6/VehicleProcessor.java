@@ -0,0 +1,91 @@
+package Question6;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+//  VehicleProcessor: Discharges vehicles from every lane that has green
+// Purely event driven on the SimulationClock: a lane is served when a vehicle arrives in it,
+// when it turns green, or when its previous vehicle has cleared the junction, and nothing runs
+// otherwise, so an idle intersection costs no wakeups. The lanes of a phase discharge in
+// parallel, each keeping consecutive vehicles one saturation headway apart
+// (3600 / saturationFlow seconds per lane). All state is touched only on the clock thread.
+class VehicleProcessor {
+    static final int DEFAULT_SATURATION_FLOW = 3600; // Vehicles per hour of green per lane (one per second)
+
+    // Told about every vehicle that crosses, with how long it waited
+    interface DischargeListener {
+        void onDischarge(Vehicle v, long waitMillis);
+    }
+
+    private final VehicleManager manager;       // Vehicle queue manager
+    private final SignalController signal;      // Signal controller
+    private final SimulationClock clock;        // Time source and event loop
+    private final DischargeListener listener;   // Logs or records departures
+    private final long headwayMillis;           // Minimum gap between two departures in a lane
+    private final long[] nextDepartureMillis;   // Per lane: earliest time the next vehicle may leave
+    private final boolean[] wakeupPending;      // Per lane: a headway wakeup is already scheduled
+    // Per lane: an arrival has already asked the clock for a discharge attempt; later arrivals
+    // piggyback on it, so a burst of producers schedules one event instead of one per vehicle
+    private final AtomicIntegerArray arrivalPending;
+
+    public VehicleProcessor(VehicleManager manager, SignalController signal,
+                            SimulationClock clock, DischargeListener listener) {
+        this(manager, signal, clock, listener,
+             Integer.getInteger("traffic.saturationFlow", DEFAULT_SATURATION_FLOW));
+    }
+
+    public VehicleProcessor(VehicleManager manager, SignalController signal, SimulationClock clock,
+                            DischargeListener listener, int saturationFlowPerHour) {
+        if (saturationFlowPerHour <= 0) {
+            throw new IllegalArgumentException("Saturation flow must be positive.");
+        }
+        this.manager = manager;
+        this.signal = signal;
+        this.clock = clock;
+        this.listener = listener;
+        this.headwayMillis = Math.max(1, 3_600_000L / saturationFlowPerHour);
+        int lanes = manager.getPlan().laneCount();
+        this.nextDepartureMillis = new long[lanes];
+        this.wakeupPending = new boolean[lanes];
+        this.arrivalPending = new AtomicIntegerArray(lanes);
+
+        signal.addPhaseListener(green -> {
+            if (!green) return;
+            for (int mask = signal.getGreenMask(); mask != 0; mask &= mask - 1) {
+                tryDischarge(Integer.numberOfTrailingZeros(mask)); // Release each green lane at once
+            }
+        });
+        manager.addArrivalListener(v -> {
+            int lane = v.lane;
+            if (arrivalPending.compareAndSet(lane, 0, 1)) {
+                clock.schedule(0, () -> {                    // Hop onto the clock thread
+                    arrivalPending.set(lane, 0);
+                    tryDischarge(lane);
+                });
+            }
+        });
+    }
+
+    // Let the lane's next vehicle go if the lane is green and its previous vehicle has cleared
+    private void tryDischarge(int lane) {
+        if (!signal.isGreen(lane)) return;                   // Resumes when the lane turns green
+        long now = clock.nowMillis();
+        if (now < nextDepartureMillis[lane]) {               // Previous vehicle still clearing
+            scheduleWakeup(lane, nextDepartureMillis[lane] - now);
+            return;
+        }
+        Vehicle v = manager.getNextVehicle(lane);
+        if (v == null) return;                               // Idle until the next arrival
+        nextDepartureMillis[lane] = now + headwayMillis;
+        listener.onDischarge(v, now - v.arrivalMillis);
+        scheduleWakeup(lane, headwayMillis);
+    }
+
+    private void scheduleWakeup(int lane, long delayMillis) {
+        if (wakeupPending[lane]) return;
+        wakeupPending[lane] = true;
+        clock.schedule(delayMillis, () -> {
+            wakeupPending[lane] = false;
+            tryDischarge(lane);
+        });
+    }
+}
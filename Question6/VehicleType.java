@@ -0,0 +1,40 @@
+package Question6;
+
+import java.util.SplittableRandom;
+
+// VehicleType: the priority classes served at the signal, lowest level first.
+// Types that share a level (fire trucks and ambulances) are served in arrival order.
+enum VehicleType {
+    FIRE_TRUCK("Fire Truck", "🚒", 0),
+    AMBULANCE("Ambulance", "🚑", 0),
+    POLICE("Police", "🚓", 1),
+    BUS("Bus", "🚌", 2),
+    CAR("Car", "🚗", 3);
+
+    static final int LEVELS = 4;            // Number of distinct priority levels
+    static final int EMERGENCY_LEVELS = 2;  // Levels below this are emergency vehicles
+
+    final String label;
+    final String icon;
+    final int level;
+
+    VehicleType(String label, String icon, int level) {
+        this.label = label;
+        this.icon = icon;
+        this.level = level;
+    }
+
+    boolean isEmergency() {
+        return level < EMERGENCY_LEVELS;
+    }
+
+    // Typical mix: emergencies split evenly between fire, ambulance and police;
+    // one in ten other vehicles is a bus
+    static VehicleType random(SplittableRandom random, double emergencyShare) {
+        if (random.nextDouble() < emergencyShare) {
+            int pick = random.nextInt(3);
+            return pick == 0 ? FIRE_TRUCK : pick == 1 ? AMBULANCE : POLICE;
+        }
+        return random.nextInt(10) == 0 ? BUS : CAR;
+    }
+}
@@ -0,0 +1,252 @@
+package common;
+
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Asynchronous, bounded event log shared by the booking and traffic GUIs.
+//
+// Producers publish an event as a Template plus up to two object and two long arguments into a
+// ring of pre-allocated entries. Claiming a slot is one CAS and nothing is formatted or allocated
+// on the producer's thread (as long as the template is a non-capturing lambda constant and the
+// arguments are objects that exist anyway, such as the vehicle or booking request).
+// A single consumer thread wakes every flushMillis, formats everything published since its last
+// pass into one reused buffer, and hands the batch to each Sink: a text area (one EDT update per
+// batch, scrollback capped at maxLines) and/or a rolling file. When the ring is full new events
+// are dropped and counted rather than blocking the producer; the count is reported in the log.
+//
+// Ordering: an event's sequence is the ring slot it claimed, assigned by the CAS that publishes
+// it, and the consumer drains strictly in sequence order. A slot that has been claimed but is
+// not yet filled holds back later ones until the next pass, so nothing is skipped or reordered.
+// The log is therefore in claim order. That is FIFO per producer thread. Across producers it is
+// the order in which they reached publish, not the order in which their events happened: a
+// thread paused between observing an event and publishing it lands after later ones. Callers
+// that need a global order must put their own timestamp or counter in the event.
+public final class EventLog implements AutoCloseable {
+    // Formats one event; runs on the consumer thread
+    @FunctionalInterface
+    public interface Template {
+        void format(StringBuilder out, Object a, Object b, long x, long y);
+    }
+
+    // Receives each formatted batch on the consumer thread
+    public interface Sink {
+        void write(CharSequence batch);
+
+        default void close() {
+        }
+    }
+
+    // Plain text line: publish(MESSAGE, text)
+    public static final Template MESSAGE = (out, a, _, _, _) -> out.append(a).append('\n');
+
+    private final Entry[] entries;
+    private final int mask;
+    private final long flushNanos;
+    private final AtomicLong claimed = new AtomicLong(); // Next sequence handed to a producer
+    private volatile long consumed = 0;                  // Next sequence the consumer will read
+    private final LongAdder dropped = new LongAdder();
+    private long droppedReported = 0;                    // Consumer thread only
+    private final List<Sink> sinks = new CopyOnWriteArrayList<>();
+    private final StringBuilder batch = new StringBuilder(4096);
+    private final Thread consumer;
+    private volatile boolean running = true;
+
+    // capacity is rounded up to a power of two
+    public EventLog(String name, int capacity, long flushMillis) {
+        if (capacity < 1 || flushMillis < 1) {
+            throw new IllegalArgumentException("capacity and flushMillis must be positive.");
+        }
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.entries = new Entry[size];
+        for (int i = 0; i < size; i++) entries[i] = new Entry();
+        this.mask = size - 1;
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+        this.consumer = new Thread(this::runConsumer, name);
+        consumer.setDaemon(true);
+    }
+
+    public EventLog addSink(Sink sink) {
+        sinks.add(sink);
+        return this;
+    }
+
+    public void start() {
+        consumer.start();
+    }
+
+    public boolean publish(Template template, Object a) {
+        return publish(template, a, null, 0, 0);
+    }
+
+    // Queue one event; returns false (and counts a drop) if the ring is full. Never blocks.
+    public boolean publish(Template template, Object a, Object b, long x, long y) {
+        long sequence; // The slot index won by the CAS below fixes the event's place in the log
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= entries.length) {
+                dropped.increment();
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        Entry entry = entries[(int) sequence & mask];
+        entry.template = template;
+        entry.a = a;
+        entry.b = b;
+        entry.x = x;
+        entry.y = y;
+        entry.sequence = sequence; // Volatile write publishes the fields above
+        return true;
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    // Stop the consumer after a final flush and close the sinks
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(TimeUnit.NANOSECONDS.toMillis(flushNanos) * 4 + 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Sink sink : sinks) sink.close();
+    }
+
+    private void runConsumer() {
+        while (running) {
+            LockSupport.parkNanos(flushNanos);
+            drain();
+        }
+        drain();
+    }
+
+    // Format every published entry into the batch buffer and pass it to the sinks
+    private void drain() {
+        long next = consumed;
+        while (true) {
+            Entry entry = entries[(int) next & mask];
+            if (entry.sequence != next) break; // Not yet published
+            try {
+                entry.template.format(batch, entry.a, entry.b, entry.x, entry.y);
+            } catch (RuntimeException e) {
+                batch.append("⚠️ Could not format log entry: ").append(e).append('\n');
+            }
+            entry.template = null; // Let the arguments be collected
+            entry.a = null;
+            entry.b = null;
+            next++;
+            if ((next & 63) == 0) consumed = next; // Free slots for producers every so often
+        }
+        consumed = next;
+        long droppedNow = dropped.sum();
+        if (droppedNow != droppedReported) {
+            batch.append("⚠️ Log full, dropped ").append(droppedNow - droppedReported).append(" entries\n");
+            droppedReported = droppedNow;
+        }
+        if (batch.length() == 0) return;
+        for (Sink sink : sinks) sink.write(batch);
+        batch.setLength(0);
+        if (batch.capacity() > 1 << 20) batch.trimToSize(); // Do not keep a burst-sized buffer forever
+    }
+
+    // Appends each batch to a text area in one EDT task and keeps at most maxLines lines
+    public static Sink textAreaSink(JTextArea area, int maxLines) {
+        return batch -> {
+            String text = batch.toString();
+            SwingUtilities.invokeLater(() -> {
+                area.append(text);
+                int excess = area.getLineCount() - maxLines;
+                if (excess <= 0) return;
+                try {
+                    area.replaceRange("", 0, area.getLineStartOffset(excess));
+                } catch (BadLocationException e) {
+                    area.setText(""); // Should not happen; start afresh rather than grow
+                }
+            });
+        };
+    }
+
+    // Writes batches to path, rolling it to path.1 .. path.keep once it exceeds maxBytes
+    public static final class RollingFileSink implements Sink {
+        private final Path path;
+        private final long maxBytes;
+        private final int keep;
+        private BufferedWriter writer;
+        private long written;
+
+        public RollingFileSink(Path path, long maxBytes, int keep) throws IOException {
+            this.path = path;
+            this.maxBytes = maxBytes;
+            this.keep = keep;
+            open();
+        }
+
+        private void open() throws IOException {
+            writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                java.nio.file.StandardOpenOption.CREATE, java.nio.file.StandardOpenOption.APPEND);
+            written = Files.size(path);
+        }
+
+        @Override
+        public void write(CharSequence batch) {
+            try {
+                writer.append(batch);
+                writer.flush();
+                written += batch.length(); // Characters; close enough to bytes for rolling
+                if (written >= maxBytes) roll();
+            } catch (IOException e) {
+                System.err.println("Event log file write failed: " + e.getMessage());
+            }
+        }
+
+        private void roll() throws IOException {
+            writer.close();
+            for (int i = keep - 1; i >= 1; i--) {
+                Path older = path.resolveSibling(path.getFileName() + "." + i);
+                if (Files.exists(older)) {
+                    Files.move(older, path.resolveSibling(path.getFileName() + "." + (i + 1)),
+                        StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            if (keep >= 1) {
+                Files.move(path, path.resolveSibling(path.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.delete(path);
+            }
+            open();
+        }
+
+        @Override
+        public void close() {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                System.err.println("Event log file close failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // One ring slot, reused for every event that lands on it
+    private static final class Entry {
+        volatile long sequence = -1;
+        Template template;
+        Object a, b;
+        long x, y;
+    }
+}